@@ -0,0 +1,111 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bench.com.msiops.ground.promise;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+/**
+ * <p>
+ * Cost of {@link Promise#map(java.util.function.Function) map} and
+ * {@link Promise#then(com.msiops.footing.functional.FunT1) then} chains by
+ * depth.
+ * </p>
+ *
+ * <p>
+ * The <em>eager</em> variants bind to an already fulfilled promise so each
+ * stage runs as it is bound. The <em>deferred</em> variants bind the whole
+ * chain to an incomplete promise first, then complete it, so every stage
+ * passes through the pending list.
+ * </p>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ChainBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int depth;
+
+    private final Integer value = 75;
+
+    @Benchmark
+    public void mapDeferred(final Blackhole bh) {
+
+        final Async<Integer> a = Promises.async();
+        Promise<Integer> p = a.promise();
+        for (int i = 0; i < this.depth; i = i + 1) {
+            p = p.map(v -> v + 1);
+        }
+        p.forEach(bh::consume);
+        a.succeed(this.value);
+
+    }
+
+    @Benchmark
+    public void mapEager(final Blackhole bh) {
+
+        Promise<Integer> p = Promises.fulfilled(this.value);
+        for (int i = 0; i < this.depth; i = i + 1) {
+            p = p.map(v -> v + 1);
+        }
+        p.forEach(bh::consume);
+
+    }
+
+    @Benchmark
+    public void thenDeferred(final Blackhole bh) {
+
+        final Async<Integer> a = Promises.async();
+        Promise<Integer> p = a.promise();
+        for (int i = 0; i < this.depth; i = i + 1) {
+            p = p.then(v -> Promises.fulfilled(v + 1));
+        }
+        p.forEach(bh::consume);
+        a.succeed(this.value);
+
+    }
+
+    @Benchmark
+    public void thenEager(final Blackhole bh) {
+
+        Promise<Integer> p = Promises.fulfilled(this.value);
+        for (int i = 0; i < this.depth; i = i + 1) {
+            p = p.then(v -> Promises.fulfilled(v + 1));
+        }
+        p.forEach(bh::consume);
+
+    }
+
+}
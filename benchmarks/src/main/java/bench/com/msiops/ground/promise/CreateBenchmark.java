@@ -0,0 +1,81 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bench.com.msiops.ground.promise;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+/**
+ * Cost of producing a complete promise, degenerate or through an
+ * {@link Async}.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CreateBenchmark {
+
+    private final Integer value = 75;
+
+    @Benchmark
+    public Promise<Integer> asyncSucceed() {
+
+        final Async<Integer> a = Promises.async();
+        a.succeed(this.value);
+        return a.promise();
+
+    }
+
+    @Benchmark
+    public void asyncSucceedWithListener(final Blackhole bh) {
+
+        final Async<Integer> a = Promises.async();
+        a.promise().forEach(bh::consume);
+        a.succeed(this.value);
+
+    }
+
+    @Benchmark
+    public Promise<Integer> fulfilled() {
+
+        return Promises.fulfilled(this.value);
+
+    }
+
+    @Benchmark
+    public void fulfilledWithListener(final Blackhole bh) {
+
+        Promises.fulfilled(this.value).forEach(bh::consume);
+
+    }
+
+}
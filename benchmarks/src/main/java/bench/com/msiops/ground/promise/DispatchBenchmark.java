@@ -0,0 +1,111 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bench.com.msiops.ground.promise;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+/**
+ * <p>
+ * Cost of binding continuations to one promise from many threads at once.
+ * Every binding passes through the promise's pending-list monitor, so this
+ * measures contention on it.
+ * </p>
+ *
+ * <p>
+ * The <em>completed</em> variants bind to a promise that is already
+ * fulfilled. The <em>racing</em> group has threads binding to a shared
+ * promise while another thread keeps replacing it with a fresh one and
+ * completing the old one, so bindings land on both sides of completion.
+ * </p>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    private volatile Async<Integer> current;
+
+    private Promise<Integer> fulfilled;
+
+    private final Integer value = 75;
+
+    @Benchmark
+    @Threads(8)
+    public void completedContended(final Blackhole bh) {
+
+        this.fulfilled.forEach(bh::consume);
+
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void completedUncontended(final Blackhole bh) {
+
+        this.fulfilled.forEach(bh::consume);
+
+    }
+
+    @Benchmark
+    @Group("racing")
+    @GroupThreads(7)
+    public void racingBind(final Blackhole bh) {
+
+        this.current.promise().forEach(bh::consume);
+
+    }
+
+    @Benchmark
+    @Group("racing")
+    @GroupThreads(1)
+    public void racingComplete() {
+
+        final Async<Integer> prev = this.current;
+        this.current = Promises.async();
+        prev.succeed(this.value);
+
+    }
+
+    @Setup
+    public void setup() {
+
+        this.fulfilled = Promises.fulfilled(this.value);
+        this.current = Promises.async();
+
+    }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bench.com.msiops.ground.promise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+/**
+ * Cost of {@link Promises#unite(List)} by number of inputs.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class UniteBenchmark {
+
+    private List<Promise<Integer>> fulfilled;
+
+    @Param({ "10", "1000", "100000" })
+    public int size;
+
+    @Setup
+    public void setup() {
+
+        this.fulfilled = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i = i + 1) {
+            this.fulfilled.add(Promises.fulfilled(i));
+        }
+
+    }
+
+    @Benchmark
+    public void uniteDeferred(final Blackhole bh) {
+
+        final List<Async<Integer>> asyncs = new ArrayList<>(this.size);
+        final List<Promise<Integer>> promises = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i = i + 1) {
+            final Async<Integer> a = Promises.async();
+            asyncs.add(a);
+            promises.add(a.promise());
+        }
+        Promises.unite(promises).forEach(bh::consume);
+        for (int i = 0; i < this.size; i = i + 1) {
+            asyncs.get(i).succeed(i);
+        }
+
+    }
+
+    @Benchmark
+    public void uniteFulfilled(final Blackhole bh) {
+
+        Promises.unite(this.fulfilled).forEach(bh::consume);
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Call site where a continuation was bound. When a promise produced by the
+ * continuation is broken, its trace is added to the error as a suppressed
+ * exception. An error propagating down a chain collects one trace per traced
+ * stage, giving the asynchronous path it took.
+ *
+ * <p>
+ * The trace holds only the first frame outside this package, so it prints as
+ * a single line.
+ * </p>
+ */
+final class AssemblyTrace extends Throwable {
+
+    /**
+     * most traces one error will collect. Guards against errors shared by
+     * many chains.
+     */
+    private static final int LIMIT = 64;
+
+    private static final String PACKAGE = AssemblyTrace.class.getPackage()
+            .getName() + ".";
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @return trace of the calling frame, or null if this registration is not
+     *         sampled.
+     */
+    static AssemblyTrace capture(final String op, final int interval) {
+
+        if (interval > 1
+                && ThreadLocalRandom.current().nextInt(interval) != 0) {
+            return null;
+        }
+
+        final StackTraceElement[] trace = new Throwable().getStackTrace();
+        int i = 0;
+        while (i < trace.length - 1
+                && trace[i].getClassName().startsWith(PACKAGE)) {
+            i++;
+        }
+        final AssemblyTrace rval = new AssemblyTrace(op);
+        if (trace.length > 0) {
+            rval.setStackTrace(new StackTraceElement[] { trace[i] });
+        }
+        return rval;
+
+    }
+
+    private AssemblyTrace(final String op) {
+        super("assembled at " + op, null, false, true);
+    }
+
+    /**
+     * Record this trace on an error.
+     */
+    void attach(final Throwable x) {
+
+        if (x.getSuppressed().length < LIMIT) {
+            x.addSuppressed(this);
+        }
+
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        /*
+         * the stack is set from the captured frame
+         */
+        return this;
+    }
+
+}
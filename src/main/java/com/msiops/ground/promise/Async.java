@@ -15,12 +15,15 @@
  */
 package com.msiops.ground.promise;
 
+import java.util.Objects;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.msiops.ground.either.Either;
 
@@ -38,17 +41,85 @@ import com.msiops.ground.either.Either;
  * will be presented with the state immediately.
  * </p>
  *
+ * <p>
+ * An instance obtained from {@link PromiseScope#async()} may be canceled by
+ * its scope. Completing it after that is quietly ignored, since its owner
+ * cannot tell when the scope will act.
+ * </p>
+ *
  *
  * @param <T>
  *            promised value type.
  */
 public final class Async<T> {
 
-    private final AtomicBoolean completed = new AtomicBoolean();
+    private static final int COMPLETED = 1;
+
+    private static final int OPEN = 0;
+
+    private static final int REVOKED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(OPEN);
+
+    private final Promise<T> p;
 
-    private final Promise<T> p = new Promise<>();
+    private final LeakDetector.Tracker tracker;
 
     Async() {
+        this(null);
+    }
+
+    Async(final Deadline deadline) {
+        this.p = new Promise<>(deadline);
+        this.tracker = LeakDetector.track(this, this.p);
+    }
+
+    /**
+     * <p>
+     * Complete the promise from a completion stage. The promise is fulfilled
+     * or broken when the stage completes. A stage completing with a null
+     * value breaks the promise with {@link NullPointerException}. A
+     * {@link CompletionException} is unwrapped to its cause.
+     * </p>
+     *
+     * <p>
+     * Unlike the other completion methods, adopting does not complete this
+     * instance. It remains possible to complete it directly before the stage
+     * completes, in which case the stage's outcome is ignored. In particular,
+     * if this instance is {@link #cancel() canceled} and the stage is a
+     * {@link Future}, the stage is canceled too. This lets cancellation in the
+     * promise graph reach the operation that produced the stage.
+     * </p>
+     *
+     * @param stage
+     *            stage to adopt. Must not be null.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public void adopt(final CompletionStage<? extends T> stage) {
+
+        Objects.requireNonNull(stage);
+
+        if (stage instanceof Future) {
+            this.p.onCanceled(() -> ((Future<?>) stage).cancel(true));
+        }
+
+        stage.whenComplete((v, x) -> {
+            if (!claim(COMPLETED)) {
+                return;
+            }
+            if (x instanceof CompletionException && x.getCause() != null) {
+                this.p.fail(x.getCause());
+            } else if (x != null) {
+                this.p.fail(x);
+            } else if (v == null) {
+                this.p.fail(new NullPointerException(
+                        "stage completed with null value"));
+            } else {
+                this.p.succeed(v);
+            }
+        });
 
     }
 
@@ -61,15 +132,17 @@ public final class Async<T> {
      */
     public void cancel() {
 
-        race();
-        this.p.cancel();
+        if (race()) {
+            this.p.cancel();
+        }
 
     }
 
     public void complete(final Either<? extends T, ? extends Throwable> e) {
 
-        race();
-        this.p.complete(e);
+        if (race()) {
+            this.p.complete(e);
+        }
 
     }
 
@@ -89,8 +162,9 @@ public final class Async<T> {
      */
     public void fail(final Throwable x) {
 
-        race();
-        this.p.fail(x);
+        if (race()) {
+            this.p.fail(x);
+        }
 
     }
 
@@ -118,13 +192,18 @@ public final class Async<T> {
      */
     public void succeed(final T value) {
 
-        race();
-        this.p.succeed(value);
+        if (race()) {
+            this.p.succeed(value);
+        }
     }
 
     public Runnable watch(final Future<? extends T> fv) {
 
-        race();
+        if (!race()) {
+            return () -> {
+                /* canceled by its scope, nothing to do. */
+            };
+        }
         return new Runnable() {
 
             @Override
@@ -151,7 +230,11 @@ public final class Async<T> {
 
     public Runnable when(final Future<T> fv, final long timeout,
             final TimeUnit unit) {
-        race();
+        if (!race()) {
+            return () -> {
+                /* canceled by its scope, nothing to do. */
+            };
+        }
         return new Runnable() {
 
             @Override
@@ -172,12 +255,52 @@ public final class Async<T> {
         };
     }
 
-    private void race() {
-        final boolean win = this.completed.compareAndSet(false, true);
-        if (!win) {
-            throw new IllegalStateException(
-                    "promise is completed or bound already");
+    /**
+     * Cancel the promise on behalf of a scope if it is not already complete.
+     * The owner's later attempt to complete it is ignored.
+     */
+    void revoke() {
+
+        if (claim(REVOKED)) {
+            this.p.cancel();
+        }
+
+    }
+
+    /**
+     * Break the promise if it is not already complete.
+     *
+     * @return true if this invocation broke the promise.
+     */
+    boolean tryFail(final Throwable x) {
+
+        if (claim(COMPLETED)) {
+            this.p.fail(x);
+            return true;
+        }
+        return false;
+
+    }
+
+    private boolean claim(final int how) {
+
+        final boolean win = this.state.compareAndSet(OPEN, how);
+        if (win && this.tracker != null) {
+            this.tracker.close();
+        }
+        return win;
+
+    }
+
+    private boolean race() {
+        if (claim(COMPLETED)) {
+            return true;
+        }
+        if (this.state.get() == REVOKED) {
+            return false;
         }
+        throw new IllegalStateException(
+                "promise is completed or bound already");
     }
 
 }
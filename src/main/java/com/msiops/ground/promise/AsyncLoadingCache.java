@@ -0,0 +1,463 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.msiops.footing.functional.FunT1;
+
+/**
+ * <p>
+ * Cache promised values computed by a loader. Concurrent requests for a key
+ * that is being loaded share one load, as with {@link PromiseCache}, but a
+ * loaded value stays cached until it is evicted or expires.
+ * </p>
+ *
+ * <p>
+ * The cache holds at most a fixed number of entries. Eviction follows a
+ * segmented LRU policy: a new entry starts on probation and is promoted to
+ * the protected segment when it is requested again. The least recently used
+ * probationary entry is evicted first, so a scan of one-off keys cannot
+ * flush the entries that are actually reused. No operation blocks on the
+ * policy: admissions and removals are buffered and applied by whichever
+ * thread next holds it. Under contention, a hit may skip its recency update.
+ * </p>
+ *
+ * <p>
+ * Other behavior is optional:
+ * </p>
+ * <ul>
+ * <li><em>expire after write</em>: a value older than this is discarded and
+ * reloaded on the next request.</li>
+ * <li><em>refresh after write</em>: a request for a value older than this
+ * returns the value immediately and starts a background reload that
+ * replaces it when it succeeds. A failed reload leaves the old value in
+ * place.</li>
+ * <li><em>negative time to live</em>: a broken load is remembered for this
+ * long, so a failing backend is not asked again for every request. When not
+ * set, a broken load is forgotten as soon as it completes.</li>
+ * </ul>
+ *
+ * @param <K>
+ *            key type.
+ *
+ * @param <V>
+ *            value type.
+ */
+public final class AsyncLoadingCache<K, V> {
+
+    private static final class Node<K, V> {
+
+        private final K key;
+
+        private boolean linked = false;
+
+        private Node<K, V> next = null;
+
+        private Node<K, V> prev = null;
+
+        private volatile Promise<V> promise = null;
+
+        private boolean protect = false;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private volatile int state = PENDING;
+
+        private volatile long written = 0;
+
+        Node(final K key) {
+            this.key = key;
+        }
+
+    }
+
+    /**
+     * circular doubly linked list with a sentinel, most recent first.
+     */
+    private static final class Segment<K, V> {
+
+        private final Node<K, V> head = new Node<>(null);
+
+        private int size = 0;
+
+        Segment() {
+            this.head.next = this.head;
+            this.head.prev = this.head;
+        }
+
+        void addFirst(final Node<K, V> n) {
+            n.prev = this.head;
+            n.next = this.head.next;
+            this.head.next.prev = n;
+            this.head.next = n;
+            this.size++;
+        }
+
+        void remove(final Node<K, V> n) {
+            n.prev.next = n.next;
+            n.next.prev = n.prev;
+            n.prev = null;
+            n.next = null;
+            this.size--;
+        }
+
+        Node<K, V> removeLast() {
+            final Node<K, V> rval = this.head.prev;
+            remove(rval);
+            return rval;
+        }
+
+    }
+
+    private static final int BROKEN = 2;
+
+    private static final int FULFILLED = 1;
+
+    private static final int PENDING = 0;
+
+    private final long expireAfterWrite;
+
+    private final FunT1<? super K, ? extends Promise<V>> loader;
+
+    /**
+     * nodes to link, applied under the policy lock.
+     */
+    private final Queue<Node<K, V>> admissions = new ConcurrentLinkedQueue<>();
+
+    private final ConcurrentMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+
+    private final int maximumSize;
+
+    private final long negativeTtl;
+
+    /**
+     * guards the policy segments and the policy fields of every node.
+     */
+    private final ReentrantLock policy = new ReentrantLock();
+
+    private final Segment<K, V> probation = new Segment<>();
+
+    private final Segment<K, V> protectedSegment = new Segment<>();
+
+    private final int protectedSize;
+
+    private final long refreshAfterWrite;
+
+    /**
+     * nodes to unlink, applied under the policy lock.
+     */
+    private final Queue<Node<K, V>> removals = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Create a cache.
+     *
+     * @param loader
+     *            loads the value of a key. Must not be null.
+     *
+     * @param maximumSize
+     *            most entries to hold. Must be positive.
+     *
+     * @param expireAfterWrite
+     *            age at which a value is discarded, or zero never to
+     *            discard. Must not be negative.
+     *
+     * @param refreshAfterWrite
+     *            age at which a requested value is reloaded in the
+     *            background, or zero never to refresh. Must not be negative.
+     *
+     * @param negativeTtl
+     *            time to remember a broken load, or zero not to remember it.
+     *            Must not be negative.
+     *
+     * @param unit
+     *            unit of the times. Must not be null.
+     *
+     * @throws IllegalArgumentException
+     *             if the size is not positive or a time is negative.
+     *
+     * @throws NullPointerException
+     *             if any reference argument is null.
+     */
+    public AsyncLoadingCache(
+            final FunT1<? super K, ? extends Promise<V>> loader,
+            final int maximumSize, final long expireAfterWrite,
+            final long refreshAfterWrite, final long negativeTtl,
+            final TimeUnit unit) {
+
+        Objects.requireNonNull(loader);
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException(
+                    "maximum size must be positive");
+        }
+        if (expireAfterWrite < 0 || refreshAfterWrite < 0 || negativeTtl < 0) {
+            throw new IllegalArgumentException("times must not be negative");
+        }
+
+        this.loader = loader;
+        this.maximumSize = maximumSize;
+        this.protectedSize = maximumSize - maximumSize / 5;
+        this.expireAfterWrite = unit.toNanos(expireAfterWrite);
+        this.refreshAfterWrite = unit.toNanos(refreshAfterWrite);
+        this.negativeTtl = unit.toNanos(negativeTtl);
+
+    }
+
+    /**
+     * Retrieve the promised value of a key, loading it if it is not cached.
+     * The loader is invoked on the calling thread. If the loader throws or
+     * returns null, the returned promise is broken.
+     *
+     * @param key
+     *            key. Must not be null.
+     *
+     * @return promised value.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public Promise<V> get(final K key) {
+
+        Objects.requireNonNull(key);
+
+        final long now = System.nanoTime();
+        final Node<K, V> node = this.map.get(key);
+        if (node != null) {
+            if (!expired(node, now)) {
+                access(node);
+                refresh(node, now);
+                return node.promise;
+            }
+            if (this.map.remove(key, node)) {
+                unlink(node);
+            }
+        }
+        return load(key);
+
+    }
+
+    /**
+     * Discard a key. A load in flight is not affected but its result is not
+     * cached.
+     *
+     * @param key
+     *            key. Must not be null.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public void invalidate(final K key) {
+
+        final Node<K, V> node = this.map.remove(Objects.requireNonNull(key));
+        if (node != null) {
+            unlink(node);
+        }
+
+    }
+
+    /**
+     * @return number of entries, including loads in flight.
+     */
+    public int size() {
+        return this.map.size();
+    }
+
+    private void access(final Node<K, V> n) {
+
+        if (!this.policy.tryLock()) {
+            /*
+             * recency is advisory, don't wait for it.
+             */
+            return;
+        }
+        try {
+            if (n.linked && n.protect) {
+                this.protectedSegment.remove(n);
+                this.protectedSegment.addFirst(n);
+            } else if (n.linked) {
+                this.probation.remove(n);
+                this.protectedSegment.addFirst(n);
+                n.protect = true;
+                while (this.protectedSegment.size > this.protectedSize) {
+                    final Node<K, V> demoted = this.protectedSegment
+                            .removeLast();
+                    demoted.protect = false;
+                    this.probation.addFirst(demoted);
+                }
+            }
+        } finally {
+            this.policy.unlock();
+        }
+        if (!this.removals.isEmpty() || !this.admissions.isEmpty()) {
+            /*
+             * changes buffered while this thread held the policy
+             */
+            maintain();
+        }
+
+    }
+
+    private void admit(final Node<K, V> n) {
+
+        this.admissions.add(n);
+        maintain();
+
+    }
+
+    private boolean expired(final Node<K, V> n, final long now) {
+
+        switch (n.state) {
+        case FULFILLED:
+            return this.expireAfterWrite > 0
+                    && now - n.written >= this.expireAfterWrite;
+        case BROKEN:
+            return now - n.written >= this.negativeTtl;
+        default:
+            return false;
+        }
+
+    }
+
+    private Promise<V> load(final K key) {
+
+        final Node<K, V> node = new Node<>(key);
+        final Promise<V> rval = new Promise<>();
+        node.promise = rval;
+
+        final Node<K, V> raced = this.map.putIfAbsent(key, node);
+        if (raced != null) {
+            return raced.promise;
+        }
+        admit(node);
+
+        final Promise<V> upstream;
+        try {
+            upstream = Objects.requireNonNull(this.loader.apply(key));
+        } catch (final Throwable t) {
+            settle(node, t);
+            rval.fail(t);
+            return rval;
+        }
+
+        upstream.dispatch((v, x) -> {
+            settle(node, x);
+            if (x == null) {
+                rval.succeed(v);
+            } else {
+                rval.fail(x);
+            }
+        });
+
+        return rval;
+
+    }
+
+    /**
+     * Apply buffered policy changes if the policy is free. A thread that
+     * finds it busy leaves its change to the holder, who checks for more
+     * after releasing it.
+     */
+    private void maintain() {
+
+        do {
+            if (!this.policy.tryLock()) {
+                return;
+            }
+            try {
+                Node<K, V> n;
+                while ((n = this.removals.poll()) != null) {
+                    if (n.linked) {
+                        (n.protect ? this.protectedSegment : this.probation)
+                                .remove(n);
+                        n.linked = false;
+                    }
+                }
+                while ((n = this.admissions.poll()) != null) {
+                    /*
+                     * skip a node invalidated or evicted since it was loaded
+                     */
+                    if (!n.linked && this.map.get(n.key) == n) {
+                        this.probation.addFirst(n);
+                        n.linked = true;
+                    }
+                }
+                while (this.probation.size
+                        + this.protectedSegment.size > this.maximumSize) {
+                    final Node<K, V> victim = this.probation.size > 0
+                            ? this.probation.removeLast()
+                            : this.protectedSegment.removeLast();
+                    victim.linked = false;
+                    this.map.remove(victim.key, victim);
+                }
+            } finally {
+                this.policy.unlock();
+            }
+        } while (!this.removals.isEmpty() || !this.admissions.isEmpty());
+
+    }
+
+    private void refresh(final Node<K, V> n, final long now) {
+
+        if (this.refreshAfterWrite == 0 || n.state != FULFILLED
+                || now - n.written < this.refreshAfterWrite
+                || !n.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Promise<V> reload;
+        try {
+            reload = Objects.requireNonNull(this.loader.apply(n.key));
+        } catch (final Throwable t) {
+            n.refreshing.set(false);
+            return;
+        }
+        reload.forEach(v -> {
+            if (this.map.get(n.key) == n) {
+                n.promise = Promises.fulfilled(v);
+                n.written = System.nanoTime();
+            }
+            n.refreshing.set(false);
+        });
+        reload.on(Throwable.class, x -> n.refreshing.set(false));
+
+    }
+
+    private void settle(final Node<K, V> n, final Throwable x) {
+
+        n.written = System.nanoTime();
+        n.state = x == null ? FULFILLED : BROKEN;
+        if (x != null && this.negativeTtl == 0
+                && this.map.remove(n.key, n)) {
+            unlink(n);
+        }
+
+    }
+
+    private void unlink(final Node<K, V> n) {
+
+        this.removals.add(n);
+        maintain();
+
+    }
+
+}
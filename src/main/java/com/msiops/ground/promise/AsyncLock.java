@@ -0,0 +1,77 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import com.msiops.footing.functional.SupplierT;
+
+/**
+ * <p>
+ * Mutual exclusion across asynchronous stages. Unlike a monitor, the lock is
+ * not tied to a thread: it is held from the fulfillment of
+ * {@link #acquire()} until the granted {@link Permit} is released, which may
+ * be on another thread after any number of continuations.
+ * </p>
+ *
+ * <p>
+ * The lock is fair: waiters are granted it in arrival order. It is not
+ * reentrant. The implementation is lock-free and a waiter's promise is
+ * fulfilled on the thread that releases the lock before it.
+ * </p>
+ *
+ * @see AsyncReadWriteLock
+ */
+public final class AsyncLock {
+
+    private final AsyncSemaphore s = new AsyncSemaphore(1);
+
+    /**
+     * Acquire the lock.
+     *
+     * @return promise of a permit, fulfilled when the lock is granted. The
+     *         lock is held until the permit is released.
+     */
+    public Promise<Permit> acquire() {
+        return this.s.acquire();
+    }
+
+    /**
+     * Invoke a promise supplier while holding the lock. The lock is released
+     * when the supplied promise completes, or immediately if the supplier
+     * throws or supplies null, in which case the returned promise is broken.
+     *
+     * @param <T>
+     *            promised value type.
+     *
+     * @param src
+     *            promise supplier. Must not be null.
+     *
+     * @return promise of the supplied promise's value.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public <T> Promise<T> call(final SupplierT<? extends Promise<T>> src) {
+        return this.s.call(src);
+    }
+
+    /**
+     * @return true if the lock is held now.
+     */
+    public boolean isLocked() {
+        return this.s.available() == 0;
+    }
+
+}
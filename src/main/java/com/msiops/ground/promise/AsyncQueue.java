@@ -0,0 +1,266 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * Bounded hand-off between asynchronous producers and consumers. Neither
+ * side blocks a thread. {@link #take()} promises the next element, fulfilled
+ * as soon as one is available. {@link #offer(Object)} promises
+ * acknowledgment, fulfilled as soon as the element fits in the queue. A
+ * producer that waits for acknowledgment before offering again is held back
+ * to the pace of its consumers.
+ * </p>
+ *
+ * <p>
+ * Elements are taken in the order they were accepted, and waiting takers and
+ * offerers are served in arrival order. Elements are held in a lock-free
+ * ring buffer shared by any number of producers and consumers. Promises of
+ * waiting parties are fulfilled on the thread whose offer or take made room
+ * or supplied the element.
+ * </p>
+ *
+ * @param <T>
+ *            element type.
+ */
+public final class AsyncQueue<T> {
+
+    private static final class Offer<T> {
+
+        private final Async<T> ack = new Async<>();
+
+        private final T value;
+
+        Offer(final T value) {
+            this.value = value;
+        }
+
+    }
+
+    /**
+     * bounded multi-producer multi-consumer ring. Each slot carries a
+     * sequence number that says whether it is ready to be written or read
+     * for a given lap.
+     */
+    private static final class Ring<T> {
+
+        private final AtomicReferenceArray<T> buffer;
+
+        private final AtomicLong head = new AtomicLong();
+
+        private final int mask;
+
+        private final AtomicLongArray sequence;
+
+        private final AtomicLong tail = new AtomicLong();
+
+        Ring(final int capacity) {
+            this.buffer = new AtomicReferenceArray<>(capacity);
+            this.sequence = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                this.sequence.set(i, i);
+            }
+            this.mask = capacity - 1;
+        }
+
+        boolean offer(final T v) {
+
+            long pos = this.tail.get();
+            while (true) {
+                final int i = (int) pos & this.mask;
+                final long d = this.sequence.get(i) - pos;
+                if (d == 0) {
+                    if (this.tail.compareAndSet(pos, pos + 1)) {
+                        this.buffer.lazySet(i, v);
+                        this.sequence.set(i, pos + 1);
+                        return true;
+                    }
+                    pos = this.tail.get();
+                } else if (d < 0) {
+                    return false;
+                } else {
+                    pos = this.tail.get();
+                }
+            }
+
+        }
+
+        T poll() {
+
+            long pos = this.head.get();
+            while (true) {
+                final int i = (int) pos & this.mask;
+                final long d = this.sequence.get(i) - (pos + 1);
+                if (d == 0) {
+                    if (this.head.compareAndSet(pos, pos + 1)) {
+                        final T rval = this.buffer.get(i);
+                        this.buffer.lazySet(i, null);
+                        this.sequence.set(i, pos + this.mask + 1);
+                        return rval;
+                    }
+                    pos = this.head.get();
+                } else if (d < 0) {
+                    return null;
+                } else {
+                    pos = this.head.get();
+                }
+            }
+
+        }
+
+        int size() {
+            return (int) Math.max(0, this.tail.get() - this.head.get());
+        }
+
+    }
+
+    private final Queue<Offer<T>> offerers = new ConcurrentLinkedQueue<>();
+
+    private final Ring<T> ring;
+
+    private final Queue<Async<T>> takers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * Create a queue.
+     *
+     * @param capacity
+     *            most elements held. Rounded up to a power of two. Must be
+     *            positive.
+     *
+     * @throws IllegalArgumentException
+     *             if the capacity is not positive or too large.
+     */
+    public AsyncQueue(final int capacity) {
+
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity out of range");
+        }
+
+        this.ring = new Ring<>(Integer.highestOneBit(capacity) == capacity
+                ? capacity : Integer.highestOneBit(capacity) << 1);
+
+    }
+
+    /**
+     * @return most elements held.
+     */
+    public int capacity() {
+        return this.ring.mask + 1;
+    }
+
+    /**
+     * Offer an element.
+     *
+     * @param value
+     *            element. Must not be null.
+     *
+     * @return promise of the element, fulfilled when the queue has accepted
+     *         it.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public Promise<T> offer(final T value) {
+
+        Objects.requireNonNull(value);
+
+        if (this.offerers.isEmpty() && this.ring.offer(value)) {
+            drain();
+            return Promises.fulfilled(value);
+        }
+
+        final Offer<T> o = new Offer<>(value);
+        this.offerers.add(o);
+        drain();
+        return o.ack.promise();
+
+    }
+
+    /**
+     * @return number of elements held now.
+     */
+    public int size() {
+        return this.ring.size();
+    }
+
+    /**
+     * Take the next element.
+     *
+     * @return promise of the element, fulfilled when one is available.
+     */
+    public Promise<T> take() {
+
+        if (this.takers.isEmpty()) {
+            final T v = this.ring.poll();
+            if (v != null) {
+                drain();
+                return Promises.fulfilled(v);
+            }
+        }
+
+        final Async<T> a = new Async<>();
+        this.takers.add(a);
+        drain();
+        return a.promise();
+
+    }
+
+    /**
+     * Move waiting offers into the ring and hand elements to waiting takers.
+     * Only one thread drains at a time; others record that more work arrived
+     * and leave.
+     */
+    private void drain() {
+
+        if (this.wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            boolean progress = true;
+            while (progress) {
+                progress = false;
+
+                for (Offer<T> o = this.offerers.peek(); o != null
+                        && this.ring.offer(o.value); o = this.offerers.peek()) {
+                    this.offerers.poll();
+                    o.ack.succeed(o.value);
+                    progress = true;
+                }
+
+                while (!this.takers.isEmpty()) {
+                    final T v = this.ring.poll();
+                    if (v == null) {
+                        break;
+                    }
+                    this.takers.poll().succeed(v);
+                    progress = true;
+                }
+            }
+        } while (this.wip.decrementAndGet() != 0);
+
+    }
+
+}
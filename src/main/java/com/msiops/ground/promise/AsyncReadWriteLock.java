@@ -0,0 +1,213 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.msiops.footing.functional.SupplierT;
+
+/**
+ * <p>
+ * Read-write lock across asynchronous stages. Any number of readers may hold
+ * the lock together, or one writer alone. As with {@link AsyncLock}, the lock
+ * is held from the fulfillment of an acquisition until its {@link Permit} is
+ * released, on any thread.
+ * </p>
+ *
+ * <p>
+ * The lock is fair: acquisitions are granted in arrival order, so a reader
+ * arriving after a waiting writer waits for that writer and writers cannot
+ * starve. Consecutive waiting readers are granted together. The lock is not
+ * reentrant. The implementation is lock-free.
+ * </p>
+ */
+public final class AsyncReadWriteLock {
+
+    private final class Hold implements Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private final boolean write;
+
+        Hold(final boolean write) {
+            this.write = write;
+        }
+
+        @Override
+        public void release() {
+
+            if (this.released.compareAndSet(false, true)) {
+                if (this.write) {
+                    AsyncReadWriteLock.this.state.set(0);
+                } else {
+                    AsyncReadWriteLock.this.state.decrementAndGet();
+                }
+                drain();
+            }
+
+        }
+
+    }
+
+    private static final class Waiter {
+
+        private final Async<Permit> a = new Async<>();
+
+        private final boolean write;
+
+        Waiter(final boolean write) {
+            this.write = write;
+        }
+
+    }
+
+    private static final int WRITING = -1;
+
+    /**
+     * number of readers holding the lock, or {@link #WRITING}.
+     */
+    private final AtomicInteger state = new AtomicInteger();
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * Acquire the lock for reading.
+     *
+     * @return promise of a permit, fulfilled when the lock is granted.
+     */
+    public Promise<Permit> acquireRead() {
+
+        if (this.waiters.isEmpty()) {
+            for (int s = this.state.get(); s >= 0; s = this.state.get()) {
+                if (this.state.compareAndSet(s, s + 1)) {
+                    return Promises.fulfilled(new Hold(false));
+                }
+            }
+        }
+        return enqueue(false);
+
+    }
+
+    /**
+     * Acquire the lock for writing.
+     *
+     * @return promise of a permit, fulfilled when the lock is granted.
+     */
+    public Promise<Permit> acquireWrite() {
+
+        if (this.waiters.isEmpty() && this.state.compareAndSet(0, WRITING)) {
+            return Promises.fulfilled(new Hold(true));
+        }
+        return enqueue(true);
+
+    }
+
+    /**
+     * Invoke a promise supplier while holding the lock for reading. The lock
+     * is released when the supplied promise completes, or immediately if the
+     * supplier throws or supplies null, in which case the returned promise is
+     * broken.
+     *
+     * @param <T>
+     *            promised value type.
+     *
+     * @param src
+     *            promise supplier. Must not be null.
+     *
+     * @return promise of the supplied promise's value.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public <T> Promise<T> read(final SupplierT<? extends Promise<T>> src) {
+
+        Objects.requireNonNull(src);
+        return AsyncSemaphore.guard(acquireRead(), src);
+
+    }
+
+    /**
+     * Invoke a promise supplier while holding the lock for writing. The lock
+     * is released when the supplied promise completes, or immediately if the
+     * supplier throws or supplies null, in which case the returned promise is
+     * broken.
+     *
+     * @param <T>
+     *            promised value type.
+     *
+     * @param src
+     *            promise supplier. Must not be null.
+     *
+     * @return promise of the supplied promise's value.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public <T> Promise<T> write(final SupplierT<? extends Promise<T>> src) {
+
+        Objects.requireNonNull(src);
+        return AsyncSemaphore.guard(acquireWrite(), src);
+
+    }
+
+    /**
+     * Grant the lock to waiters at the head of the line. Only one thread
+     * drains at a time; others record that more work arrived and leave.
+     */
+    private void drain() {
+
+        if (this.wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            for (Waiter w = this.waiters.peek(); w != null; w = this.waiters
+                    .peek()) {
+                final int s = this.state.get();
+                final boolean granted = w.write ? s == 0
+                        && this.state.compareAndSet(0, WRITING) : s >= 0
+                        && this.state.compareAndSet(s, s + 1);
+                if (!granted) {
+                    if (w.write ? s != 0 : s < 0) {
+                        break;
+                    }
+                    /*
+                     * lost a race with a fast path, look again
+                     */
+                    continue;
+                }
+                this.waiters.poll();
+                w.a.succeed(new Hold(w.write));
+            }
+        } while (this.wip.decrementAndGet() != 0);
+
+    }
+
+    private Promise<Permit> enqueue(final boolean write) {
+
+        final Waiter w = new Waiter(write);
+        this.waiters.add(w);
+        drain();
+        return w.a.promise();
+
+    }
+
+}
@@ -0,0 +1,238 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.msiops.footing.functional.SupplierT;
+
+/**
+ * <p>
+ * Semaphore whose permits are promised rather than waited for. No thread
+ * blocks: {@link #acquire()} returns a promise that is fulfilled when a
+ * permit is available, immediately if one is available now. Waiters are
+ * granted permits in arrival order.
+ * </p>
+ *
+ * <p>
+ * The number of waiters may be bounded. When the bound is reached, further
+ * acquisitions are refused with a promise broken by
+ * {@link RejectedExecutionException}, so excess load is shed instead of
+ * queued without limit.
+ * </p>
+ *
+ * <p>
+ * The implementation is lock-free. A waiter's promise is fulfilled on the
+ * thread that releases the permit it receives.
+ * </p>
+ */
+public final class AsyncSemaphore {
+
+    private final class Grant implements Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void release() {
+            if (this.released.compareAndSet(false, true)) {
+                AsyncSemaphore.this.available.incrementAndGet();
+                drain();
+            }
+        }
+
+    }
+
+    /**
+     * Invoke a promise supplier once a permit is granted, releasing the
+     * permit when the supplied promise completes or if the supplier fails.
+     */
+    static <T> Promise<T> guard(final Promise<Permit> permit,
+            final SupplierT<? extends Promise<T>> src) {
+
+        return permit.then(p -> {
+            final Promise<T> rval;
+            try {
+                rval = Objects.requireNonNull(src.get());
+            } catch (final Throwable t) {
+                p.release();
+                throw t;
+            }
+            rval.emit(any -> p.release());
+            return rval;
+        });
+
+    }
+
+    private final AtomicInteger available;
+
+    private final int maxWaiting;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Queue<Async<Permit>> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * Create a semaphore with no bound on waiters.
+     *
+     * @param permits
+     *            number of permits. Must not be negative.
+     *
+     * @throws IllegalArgumentException
+     *             if the number of permits is negative.
+     */
+    public AsyncSemaphore(final int permits) {
+        this(permits, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a semaphore with a bound on waiters.
+     *
+     * @param permits
+     *            number of permits. Must not be negative.
+     *
+     * @param maxWaiting
+     *            most acquisitions allowed to wait. Must not be negative.
+     *
+     * @throws IllegalArgumentException
+     *             if either argument is negative.
+     */
+    public AsyncSemaphore(final int permits, final int maxWaiting) {
+
+        if (permits < 0 || maxWaiting < 0) {
+            throw new IllegalArgumentException(
+                    "permits and waiters must not be negative");
+        }
+
+        this.available = new AtomicInteger(permits);
+        this.maxWaiting = maxWaiting;
+
+    }
+
+    /**
+     * Acquire a permit.
+     *
+     * @return promise of a permit. It is broken with
+     *         {@link RejectedExecutionException} if the permit would have to
+     *         wait and the bound on waiters is reached.
+     */
+    public Promise<Permit> acquire() {
+
+        if (this.waiters.isEmpty()) {
+            for (int a = this.available.get(); a > 0; a = this.available
+                    .get()) {
+                if (this.available.compareAndSet(a, a - 1)) {
+                    return Promises.fulfilled(new Grant());
+                }
+            }
+        }
+
+        if (this.waiting.incrementAndGet() > this.maxWaiting) {
+            this.waiting.decrementAndGet();
+            return Promises.broken(new RejectedExecutionException(
+                    "too many waiting"));
+        }
+
+        final Async<Permit> rval = new Async<>();
+        this.waiters.add(rval);
+        drain();
+        return rval.promise();
+
+    }
+
+    /**
+     * @return number of permits available now.
+     */
+    public int available() {
+        return Math.max(0, this.available.get());
+    }
+
+    /**
+     * <p>
+     * Invoke a promise supplier while holding a permit. The supplier is
+     * invoked once a permit is acquired and the permit is released when the
+     * supplied promise completes.
+     * </p>
+     *
+     * <p>
+     * The returned promise is broken if the permit is refused, or if the
+     * supplier throws or supplies null, in which case the permit is released
+     * immediately.
+     * </p>
+     *
+     * @param <T>
+     *            promised value type.
+     *
+     * @param src
+     *            promise supplier. Must not be null.
+     *
+     * @return promise of the supplied promise's value.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public <T> Promise<T> call(final SupplierT<? extends Promise<T>> src) {
+
+        Objects.requireNonNull(src);
+
+        return guard(acquire(), src);
+
+    }
+
+    /**
+     * @return number of acquisitions waiting for a permit.
+     */
+    public int waiting() {
+        return this.waiting.get();
+    }
+
+    /**
+     * Hand available permits to waiters. Only one thread drains at a time;
+     * others record that more work arrived and leave.
+     */
+    private void drain() {
+
+        if (this.wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (!this.waiters.isEmpty()) {
+                final int a = this.available.get();
+                if (a <= 0) {
+                    break;
+                }
+                if (!this.available.compareAndSet(a, a - 1)) {
+                    continue;
+                }
+                final Async<Permit> w = this.waiters.poll();
+                if (w == null) {
+                    this.available.incrementAndGet();
+                    break;
+                }
+                this.waiting.decrementAndGet();
+                w.succeed(new Grant());
+            }
+        } while (this.wip.decrementAndGet() != 0);
+
+    }
+
+}
@@ -0,0 +1,222 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.msiops.footing.functional.FunT1;
+
+/**
+ * <p>
+ * Collect individual key loads into batches. Keys requested within a short
+ * tick of each other are loaded by one invocation of a batch function, which
+ * promises a map from key to value. Each caller's promise is completed from
+ * the map. A batch is sent when its tick ends or as soon as it reaches its
+ * maximum size, whichever comes first.
+ * </p>
+ *
+ * <p>
+ * A key requested more than once in the same batch is sent once and its
+ * callers share a promise. A key missing from the batch result breaks its
+ * promise with {@link NoSuchElementException}. If the batch function throws
+ * or its promise is broken, every promise in the batch is broken with the
+ * same error.
+ * </p>
+ *
+ * <p>
+ * A batch ended by its tick is sent from a shared timer thread, so the batch
+ * function should not block. Nothing is cached between batches.
+ * </p>
+ *
+ * @param <K>
+ *            key type.
+ *
+ * @param <V>
+ *            value type.
+ */
+public final class BatchLoader<K, V> {
+
+    private static final class Batch<K, V> {
+
+        private ScheduledFuture<?> timer = null;
+
+        private final Map<K, Async<V>> waiting = new LinkedHashMap<>();
+
+    }
+
+    private final FunT1<? super List<K>, ? extends Promise<? extends Map<K, ? extends V>>> batchFn;
+
+    private Batch<K, V> current = null;
+
+    private final Object lock = new Object();
+
+    private final int maxBatchSize;
+
+    private final long tick;
+
+    private final TimeUnit unit;
+
+    /**
+     * Create a loader.
+     *
+     * @param batchFn
+     *            loads a batch of distinct keys. Must not be null.
+     *
+     * @param maxBatchSize
+     *            most keys in one batch. Must be positive.
+     *
+     * @param tick
+     *            longest a key waits for others to join its batch. Must not
+     *            be negative.
+     *
+     * @param unit
+     *            tick unit. Must not be null.
+     *
+     * @throws IllegalArgumentException
+     *             if the size is not positive or the tick is negative.
+     *
+     * @throws NullPointerException
+     *             if any reference argument is null.
+     */
+    public BatchLoader(
+            final FunT1<? super List<K>, ? extends Promise<? extends Map<K, ? extends V>>> batchFn,
+            final int maxBatchSize, final long tick, final TimeUnit unit) {
+
+        Objects.requireNonNull(batchFn);
+        Objects.requireNonNull(unit);
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "maximum batch size must be positive");
+        }
+        if (tick < 0) {
+            throw new IllegalArgumentException("tick must not be negative");
+        }
+
+        this.batchFn = batchFn;
+        this.maxBatchSize = maxBatchSize;
+        this.tick = tick;
+        this.unit = unit;
+
+    }
+
+    /**
+     * Send the current batch now rather than waiting for its tick to end.
+     * Does nothing if no keys are waiting.
+     */
+    public void flush() {
+
+        final Batch<K, V> b;
+        synchronized (this.lock) {
+            b = this.current;
+            this.current = null;
+        }
+        if (b != null) {
+            b.timer.cancel(false);
+            send(b);
+        }
+
+    }
+
+    /**
+     * Load the value of a key as part of a batch.
+     *
+     * @param key
+     *            key. Must not be null.
+     *
+     * @return promised value.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public Promise<V> load(final K key) {
+
+        Objects.requireNonNull(key);
+
+        final Promise<V> rval;
+        final Batch<K, V> full;
+        synchronized (this.lock) {
+            if (this.current == null) {
+                final Batch<K, V> b = new Batch<>();
+                b.timer = SharedTimer.schedule(() -> expire(b), this.tick,
+                        this.unit);
+                this.current = b;
+            }
+            rval = this.current.waiting.computeIfAbsent(key,
+                    k -> new Async<>()).promise();
+            if (this.current.waiting.size() >= this.maxBatchSize) {
+                full = this.current;
+                this.current = null;
+            } else {
+                full = null;
+            }
+        }
+
+        if (full != null) {
+            full.timer.cancel(false);
+            send(full);
+        }
+
+        return rval;
+
+    }
+
+    private void expire(final Batch<K, V> b) {
+
+        synchronized (this.lock) {
+            if (this.current != b) {
+                /*
+                 * already sent because it filled up or was flushed
+                 */
+                return;
+            }
+            this.current = null;
+        }
+        send(b);
+
+    }
+
+    private void send(final Batch<K, V> b) {
+
+        final Promise<? extends Map<K, ? extends V>> result;
+        try {
+            result = Objects.requireNonNull(this.batchFn.apply(new ArrayList<>(
+                    b.waiting.keySet())));
+        } catch (final Throwable t) {
+            b.waiting.values().forEach(a -> a.fail(t));
+            return;
+        }
+
+        result.forEach(m -> b.waiting.forEach((k, a) -> {
+            final V v = m.get(k);
+            if (v == null) {
+                a.fail(new NoSuchElementException("no value for key: " + k));
+            } else {
+                a.succeed(v);
+            }
+        }));
+        result.on(Throwable.class,
+                x -> b.waiting.values().forEach(a -> a.fail(x)));
+
+    }
+
+}
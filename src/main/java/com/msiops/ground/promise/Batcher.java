@@ -0,0 +1,291 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Group the elements of a stream into lists. A list is emitted when it
+ * reaches a maximum size, when its time is up, or at the end of the source.
+ * Lists are never empty.
+ * </p>
+ *
+ * <p>
+ * Time is measured either from the first element of the list or from the
+ * pull that opens the list. In the latter case a period with no elements
+ * opens another period rather than emitting an empty list. Timers run on the
+ * shared timer thread. A list whose time is up while its consumer is busy is
+ * emitted on the next pull.
+ * </p>
+ *
+ * <p>
+ * The source is pulled only while the consumer waits. A pull in flight when a
+ * list is emitted contributes to the next list. A source error is delivered
+ * after the elements received before it.
+ * </p>
+ *
+ * @param <T>
+ *            element type.
+ */
+final class Batcher<T> implements PromiseStream<List<T>> {
+
+    private static final int ASYNC = 1;
+
+    private static final int DONE = 2;
+
+    private static final int RUNNING = 0;
+
+    private List<T> buf = new ArrayList<>();
+
+    private final long delay;
+
+    private boolean done = false;
+
+    private boolean due = false;
+
+    private Throwable error = null;
+
+    private final boolean fromPull;
+
+    private final Object lock = new Object();
+
+    private final int maxSize;
+
+    private Promise<Optional<List<T>>> out = null;
+
+    private boolean pulling = false;
+
+    private final PromiseStream<T> src;
+
+    private ScheduledFuture<?> timer = null;
+
+    private Object window = null;
+
+    /**
+     * @param delay
+     *            time allotted a list, or zero for no time limit.
+     *
+     * @param fromPull
+     *            true to measure time from the opening pull, false to
+     *            measure it from the first element.
+     */
+    Batcher(final PromiseStream<T> src, final int maxSize, final long delay,
+            final TimeUnit unit, final boolean fromPull) {
+        this.src = src;
+        this.maxSize = maxSize;
+        this.delay = unit.toNanos(delay);
+        this.fromPull = fromPull;
+    }
+
+    @Override
+    public Promise<Optional<List<T>>> next() {
+
+        final Promise<Optional<List<T>>> rval = new Promise<>();
+        List<T> ready = null;
+        Throwable x = null;
+        boolean end = false;
+        synchronized (this.lock) {
+            if (!this.buf.isEmpty()
+                    && (this.due || this.done || this.error != null || this.buf
+                            .size() >= this.maxSize)) {
+                ready = take();
+            } else if (this.error != null) {
+                x = this.error;
+                this.error = null;
+                this.done = true;
+            } else if (this.done) {
+                end = true;
+            } else {
+                this.out = rval;
+                if (this.fromPull && this.window == null) {
+                    arm();
+                }
+            }
+        }
+
+        if (ready != null) {
+            rval.succeed(Optional.of(ready));
+        } else if (x != null) {
+            rval.fail(x);
+        } else if (end) {
+            rval.succeed(Optional.empty());
+        } else {
+            pump();
+        }
+        return rval;
+
+    }
+
+    private void arm() {
+
+        if (this.delay == 0) {
+            return;
+        }
+        final Object w = new Object();
+        this.window = w;
+        this.timer = SharedTimer.schedule(() -> expire(w), this.delay,
+                TimeUnit.NANOSECONDS);
+
+    }
+
+    private void arrive(final Optional<T> v, final Throwable x) {
+
+        final Promise<Optional<List<T>>> emit;
+        final List<T> ready;
+        synchronized (this.lock) {
+            this.pulling = false;
+            if (x != null) {
+                this.error = x;
+                if (this.out == null) {
+                    return;
+                }
+                emit = this.out;
+                this.out = null;
+                if (this.buf.isEmpty()) {
+                    this.error = null;
+                    this.done = true;
+                    ready = null;
+                } else {
+                    ready = take();
+                }
+            } else if (!v.isPresent()) {
+                this.done = true;
+                if (this.out == null) {
+                    return;
+                }
+                emit = this.out;
+                this.out = null;
+                ready = this.buf.isEmpty() ? null : take();
+            } else {
+                this.buf.add(v.get());
+                if (!this.fromPull && this.buf.size() == 1) {
+                    arm();
+                }
+                if (this.out == null || this.buf.size() < this.maxSize) {
+                    return;
+                }
+                emit = this.out;
+                this.out = null;
+                ready = take();
+            }
+        }
+
+        if (ready != null) {
+            emit.succeed(Optional.of(ready));
+        } else if (x != null) {
+            emit.fail(x);
+        } else {
+            emit.succeed(Optional.empty());
+        }
+
+    }
+
+    private void expire(final Object w) {
+
+        final Promise<Optional<List<T>>> emit;
+        final List<T> ready;
+        synchronized (this.lock) {
+            if (this.window != w) {
+                /*
+                 * list already emitted
+                 */
+                return;
+            }
+            this.window = null;
+            this.timer = null;
+            if (this.buf.isEmpty()) {
+                if (this.out != null) {
+                    arm();
+                }
+                return;
+            }
+            if (this.out == null) {
+                this.due = true;
+                return;
+            }
+            emit = this.out;
+            this.out = null;
+            ready = take();
+        }
+        emit.succeed(Optional.of(ready));
+
+    }
+
+    /**
+     * Pull from the source while the consumer waits and the list has room.
+     * Pulls that complete synchronously are followed in a loop.
+     */
+    private void pump() {
+
+        while (true) {
+
+            synchronized (this.lock) {
+                if (this.pulling || this.done || this.error != null
+                        || this.out == null
+                        || this.buf.size() >= this.maxSize) {
+                    return;
+                }
+                this.pulling = true;
+            }
+
+            Promise<Optional<T>> p;
+            try {
+                p = Objects.requireNonNull(this.src.next());
+            } catch (final Throwable t) {
+                p = Promises.broken(t);
+            }
+
+            final AtomicInteger phase = new AtomicInteger(RUNNING);
+            p.dispatch((v, x) -> {
+                arrive(v, x);
+                if (phase.getAndSet(DONE) == ASYNC) {
+                    pump();
+                }
+            });
+
+            if (phase.getAndSet(ASYNC) != DONE) {
+                return;
+            }
+
+        }
+
+    }
+
+    /**
+     * Remove the current list. Must hold the lock.
+     */
+    private List<T> take() {
+
+        final List<T> rval = this.buf;
+        this.buf = new ArrayList<>();
+        this.due = false;
+        this.window = null;
+        if (this.timer != null) {
+            this.timer.cancel(false);
+            this.timer = null;
+        }
+        return rval;
+
+    }
+
+}
@@ -0,0 +1,306 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.msiops.footing.functional.SupplierT;
+
+/**
+ * <p>
+ * Stop calling a dependency that is failing. The breaker watches the
+ * outcomes of the most recent calls in a sliding window. A call is bad if
+ * its promise is broken or if it takes too long to complete. When the window
+ * is full and the share of bad calls reaches a threshold, the breaker
+ * <em>opens</em>: calls are refused immediately with a promise broken by
+ * {@link RejectedExecutionException} and the supplier is not invoked.
+ * </p>
+ *
+ * <p>
+ * After a wait, the breaker lets a single probe call through. If the probe
+ * is good, the breaker closes and starts a fresh window; otherwise it opens
+ * again. Calls arriving while the probe is outstanding are refused. A probe
+ * that has not completed within the slow call time, or within the open time
+ * if calls are judged only by outcome, counts as bad.
+ * </p>
+ *
+ * <p>
+ * The breaker is lock-free. Under concurrent updates the window's bad call
+ * count is approximate, which is harmless for a threshold decision. Calls
+ * that complete after the breaker has closed on a fresh window are not
+ * counted in it.
+ * </p>
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Breaker state.
+     */
+    public enum State {
+
+        /**
+         * calls pass through and are counted.
+         */
+        CLOSED,
+
+        /**
+         * one probe call is outstanding; other calls are refused.
+         */
+        HALF_OPEN,
+
+        /**
+         * calls are refused.
+         */
+        OPEN
+
+    }
+
+    private static final int BAD = 2;
+
+    private static final int GOOD = 1;
+
+    private final int badLimit;
+
+    private volatile long openedAt = 0;
+
+    private final long openNanos;
+
+    private final long probeNanos;
+
+    private final long slowNanos;
+
+    private final int size;
+
+    private final AtomicReference<State> state = new AtomicReference<>(
+            State.CLOSED);
+
+    private final AtomicReference<Window> window;
+
+    /**
+     * Create a breaker.
+     *
+     * @param window
+     *            number of recent calls considered. Must be positive.
+     *
+     * @param threshold
+     *            share of bad calls in a full window at which the breaker
+     *            opens. Must be greater than zero and not greater than one.
+     *
+     * @param slowCall
+     *            time after which a call counts as bad even if it succeeds,
+     *            or zero to judge calls only by outcome. Must not be
+     *            negative.
+     *
+     * @param openFor
+     *            time the breaker stays open before probing. Must not be
+     *            negative.
+     *
+     * @param unit
+     *            unit of the times. Must not be null.
+     *
+     * @throws IllegalArgumentException
+     *             if any argument is out of range.
+     *
+     * @throws NullPointerException
+     *             if the unit is null.
+     */
+    public CircuitBreaker(final int window, final double threshold,
+            final long slowCall, final long openFor, final TimeUnit unit) {
+
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException(
+                    "threshold must be in (0, 1]");
+        }
+        if (slowCall < 0 || openFor < 0) {
+            throw new IllegalArgumentException("times must not be negative");
+        }
+
+        this.size = window;
+        this.window = new AtomicReference<>(new Window(window));
+        this.badLimit = Math.max(1, (int) Math.ceil(threshold * window));
+        this.slowNanos = unit.toNanos(slowCall);
+        this.openNanos = unit.toNanos(openFor);
+        this.probeNanos = this.slowNanos == 0 ? this.openNanos
+                : this.slowNanos;
+
+    }
+
+    /**
+     * <p>
+     * Invoke a promise supplier through the breaker. If the breaker is open,
+     * the supplier is not invoked and the returned promise is broken with
+     * {@link RejectedExecutionException}.
+     * </p>
+     *
+     * <p>
+     * Otherwise the supplied promise is returned. If the supplier throws or
+     * supplies null, the returned promise is broken and the call counts as
+     * bad.
+     * </p>
+     *
+     * @param <T>
+     *            promised value type.
+     *
+     * @param src
+     *            promise supplier. Must not be null.
+     *
+     * @return promise of the supplied value.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public <T> Promise<T> call(final SupplierT<? extends Promise<T>> src) {
+
+        Objects.requireNonNull(src);
+
+        final boolean probe;
+        switch (this.state.get()) {
+        case CLOSED:
+            probe = false;
+            break;
+        case OPEN:
+            if (System.nanoTime() - this.openedAt >= this.openNanos
+                    && this.state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                probe = true;
+                break;
+            }
+            return Promises.broken(new RejectedExecutionException(
+                    "circuit open"));
+        default:
+            return Promises.broken(new RejectedExecutionException(
+                    "circuit half open"));
+        }
+
+        final Window w = this.window.get();
+        final long start = System.nanoTime();
+        final Promise<T> rval;
+        try {
+            rval = Objects.requireNonNull(src.get());
+        } catch (final Throwable t) {
+            if (probe) {
+                settle(false);
+            } else {
+                record(false, w);
+            }
+            return Promises.broken(t);
+        }
+
+        if (probe) {
+            /*
+             * the probe is the only way out of HALF_OPEN, so it must not be
+             * allowed to hang. Whichever of the timer and the outcome comes
+             * first settles it.
+             */
+            final AtomicBoolean settled = new AtomicBoolean();
+            final ScheduledFuture<?> timer = this.probeNanos == 0 ? null
+                    : SharedTimer.schedule(() -> {
+                        if (settled.compareAndSet(false, true)) {
+                            settle(false);
+                        }
+                    }, this.probeNanos, TimeUnit.NANOSECONDS);
+            rval.dispatch((v, x) -> {
+                if (settled.compareAndSet(false, true)) {
+                    if (timer != null) {
+                        timer.cancel(false);
+                    }
+                    settle(x == null && good(start));
+                }
+            });
+        } else {
+            rval.dispatch((v, x) -> record(x == null && good(start), w));
+        }
+
+        return rval;
+
+    }
+
+    /**
+     * @return current state.
+     */
+    public State state() {
+        return this.state.get();
+    }
+
+    private boolean good(final long start) {
+        return this.slowNanos == 0
+                || System.nanoTime() - start < this.slowNanos;
+    }
+
+    private void record(final boolean good, final Window w) {
+
+        if (this.window.get() != w) {
+            // the breaker closed on a fresh window since the call started.
+            return;
+        }
+
+        final long n = w.count.getAndIncrement();
+        final int prev = w.slots.getAndSet((int) (n % this.size),
+                good ? GOOD : BAD);
+        final int delta = (good ? 0 : 1) - (prev == BAD ? 1 : 0);
+        final int nbad = delta == 0 ? w.bad.get() : w.bad.addAndGet(delta);
+
+        if (n + 1 >= this.size && nbad >= this.badLimit
+                && this.state.get() == State.CLOSED
+                && this.window.get() == w) {
+            this.openedAt = System.nanoTime();
+            this.state.compareAndSet(State.CLOSED, State.OPEN);
+        }
+
+    }
+
+    private void settle(final boolean good) {
+
+        if (good) {
+            final Window w = this.window.get();
+            this.window.compareAndSet(w, new Window(this.size));
+            this.state.set(State.CLOSED);
+        } else {
+            this.openedAt = System.nanoTime();
+            this.state.set(State.OPEN);
+        }
+
+    }
+
+    /**
+     * Outcomes of the calls made since the breaker last closed. Closing
+     * replaces the whole window, so a reset never interleaves with a record.
+     */
+    private static final class Window {
+
+        private final AtomicInteger bad = new AtomicInteger();
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicIntegerArray slots;
+
+        Window(final int size) {
+            this.slots = new AtomicIntegerArray(size);
+        }
+
+    }
+
+}
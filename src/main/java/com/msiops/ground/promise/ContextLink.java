@@ -0,0 +1,113 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+/**
+ * Run a continuation within the context captured when it was bound. Only
+ * used where that context differs from the one its promise runs links in,
+ * which may mean running it with no context at all.
+ *
+ * @param <T>
+ */
+final class ContextLink<T> implements Link<T> {
+
+    /**
+     * marks a failed swap, after which there is nothing to restore.
+     */
+    private static final Object FAILED = new Object();
+
+    /**
+     * @return current context, or null if there is none or the propagator
+     *         fails.
+     */
+    static Object capture(final ContextPropagator cp) {
+
+        try {
+            return cp.current();
+        } catch (final Throwable err) {
+            /*
+             * propagator must not disturb the chain
+             */
+            return null;
+        }
+
+    }
+
+    /**
+     * Swap a context in.
+     *
+     * @return token to pass to {@link #exit(ContextPropagator, Object)}.
+     */
+    static Object enter(final ContextPropagator cp, final Object context) {
+
+        try {
+            return cp.swap(context);
+        } catch (final Throwable err) {
+            /*
+             * propagator must not disturb the chain
+             */
+            return FAILED;
+        }
+
+    }
+
+    /**
+     * Swap back the context replaced by
+     * {@link #enter(ContextPropagator, Object)}.
+     */
+    static void exit(final ContextPropagator cp, final Object prev) {
+
+        if (prev == FAILED) {
+            return;
+        }
+        try {
+            cp.swap(prev);
+        } catch (final Throwable err) {
+            /*
+             * propagator must not disturb the chain
+             */
+        }
+
+    }
+
+    private final Object context;
+
+    private final ContextPropagator cp;
+
+    private final Link<T> link;
+
+    ContextLink(final Link<T> link, final ContextPropagator cp,
+            final Object context) {
+
+        this.link = link;
+        this.cp = cp;
+        this.context = context;
+
+    }
+
+    @Override
+    public void next(final T value, final Throwable x) {
+
+        final Object prev = enter(this.cp, this.context);
+        try {
+            this.link.next(value, x);
+        } finally {
+            exit(this.cp, prev);
+        }
+
+    }
+
+}
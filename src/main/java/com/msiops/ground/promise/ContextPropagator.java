@@ -0,0 +1,104 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+
+/**
+ * <p>
+ * Carry request-scoped context, such as trace identifiers or a logging
+ * diagnostic context, from the thread that binds a continuation to the
+ * thread that runs it. A propagator is installed process-wide with
+ * {@link Promises#propagate(ContextPropagator)}. When none is installed, the
+ * cost to each continuation is a single field read.
+ * </p>
+ *
+ * <p>
+ * When a continuation is bound, the propagator's {@link #current()} context
+ * is captured, and the continuation runs in it wherever the promise is
+ * completed. The context is {@link #swap(Object) swapped} in and the previous
+ * context is swapped back afterward. A promise derived by the continuation
+ * remembers the context, so continuations later bound to it in the same
+ * context cost only the capture. One bound in another context runs in its
+ * own, never in the context of whoever built the chain.
+ * </p>
+ *
+ * <p>
+ * Capture does not copy. A propagator whose context is an immutable value,
+ * replaced rather than modified when it changes, lets every stage of a chain
+ * share the one context object bound at its root. Implementations must be
+ * thread-safe and should not throw. A propagator that throws is skipped.
+ * </p>
+ */
+public interface ContextPropagator {
+
+    /**
+     * Propagate the value of a thread local. The value is captured by
+     * reference, so it should be immutable.
+     *
+     * @param tl
+     *            thread local to propagate. Must not be null.
+     *
+     * @return propagator of the thread local's value.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public static ContextPropagator of(final ThreadLocal<?> tl) {
+
+        Objects.requireNonNull(tl);
+
+        @SuppressWarnings("unchecked")
+        final ThreadLocal<Object> otl = (ThreadLocal<Object>) tl;
+
+        return new ContextPropagator() {
+
+            @Override
+            public Object current() {
+                return otl.get();
+            }
+
+            @Override
+            public Object swap(final Object context) {
+                final Object rval = otl.get();
+                if (context == null) {
+                    otl.remove();
+                } else {
+                    otl.set(context);
+                }
+                return rval;
+            }
+        };
+
+    }
+
+    /**
+     * @return context of the calling thread, or null if there is none to
+     *         propagate.
+     */
+    Object current();
+
+    /**
+     * Replace the calling thread's context.
+     *
+     * @param context
+     *            context to install, possibly null to clear it.
+     *
+     * @return context replaced, possibly null.
+     */
+    Object swap(Object context);
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>
+ * Point in time by which a chain of promises must complete. A deadline is
+ * attached to a root promise with {@link Promises#async(Deadline)} and is
+ * inherited by every promise derived from it through
+ * {@link Promise#then(com.msiops.footing.functional.FunT1) then},
+ * {@link Promise#map(java.util.function.Function) map},
+ * {@link Promise#defer(com.msiops.footing.functional.SupplierT) defer}, and
+ * {@link Promise#recover(Class, com.msiops.footing.functional.FunT1)
+ * recover}. A continuation can read the remaining budget from its promise's
+ * {@link Promise#deadline() deadline} and pass it on to a backend call.
+ * </p>
+ *
+ * <p>
+ * When the deadline passes, every incomplete promise under it is broken with
+ * {@link TimeoutException}, and a continuation whose input arrives too late
+ * is not invoked at all, so no doomed work is started. A promise broken this
+ * way ignores any later attempt to complete it.
+ * </p>
+ *
+ * <p>
+ * Enforcement uses one shared timer entry per deadline, however many
+ * promises are under it. Expired promises are broken on the timer thread.
+ * </p>
+ */
+public final class Deadline {
+
+    /**
+     * Create a deadline some time from now.
+     *
+     * @param timeout
+     *            time from now.
+     *
+     * @param unit
+     *            timeout unit. Must not be null.
+     *
+     * @return deadline.
+     *
+     * @throws NullPointerException
+     *             if the unit is null.
+     */
+    public static Deadline after(final long timeout, final TimeUnit unit) {
+
+        return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+
+    }
+
+    private final long at;
+
+    private boolean fired = false;
+
+    private final Set<Promise<?>> pending = new HashSet<>();
+
+    private ScheduledFuture<?> timer = null;
+
+    private Deadline(final long at) {
+        this.at = at;
+    }
+
+    /**
+     * @return true if the deadline has passed.
+     */
+    public boolean expired() {
+        return System.nanoTime() - this.at >= 0;
+    }
+
+    /**
+     * @param unit
+     *            result unit. Must not be null.
+     *
+     * @return time left before the deadline, or zero if it has passed.
+     *
+     * @throws NullPointerException
+     *             if the unit is null.
+     */
+    public long remaining(final TimeUnit unit) {
+
+        Objects.requireNonNull(unit);
+        return unit.convert(Math.max(0, this.at - System.nanoTime()),
+                TimeUnit.NANOSECONDS);
+
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[" + remaining(TimeUnit.MILLISECONDS) + "ms]";
+    }
+
+    /**
+     * Stop tracking a completed promise. The timer is canceled when nothing
+     * is left to track, so an idle deadline is not held by the timer queue.
+     */
+    void release(final Promise<?> p) {
+
+        synchronized (this.pending) {
+            if (this.pending.remove(p) && this.pending.isEmpty()
+                    && this.timer != null) {
+                this.timer.cancel(false);
+                this.timer = null;
+            }
+        }
+
+    }
+
+    /**
+     * Track a new promise, breaking it at the deadline if it is still
+     * incomplete then.
+     */
+    void track(final Promise<?> p) {
+
+        synchronized (this.pending) {
+            if (!this.fired) {
+                this.pending.add(p);
+                if (this.timer == null) {
+                    this.timer = SharedTimer.schedule(this::fire, this.at
+                            - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+        }
+        /*
+         * created after the timer fired
+         */
+        p.expire();
+
+    }
+
+    private void fire() {
+
+        final List<Promise<?>> expiring;
+        synchronized (this.pending) {
+            this.fired = true;
+            this.timer = null;
+            expiring = new ArrayList<>(this.pending);
+            this.pending.clear();
+        }
+        expiring.forEach(Promise::expire);
+
+    }
+
+}
@@ -0,0 +1,236 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.msiops.footing.functional.SupplierT;
+
+/**
+ * <p>
+ * Run asynchronous work in order per key and concurrently across keys. Each
+ * submitted supplier is invoked only after the promise supplied by the
+ * previous submission for the same key completes, whether it was fulfilled
+ * or broken. Submissions for different keys do not wait for each other.
+ * </p>
+ *
+ * <p>
+ * Only keys with work in flight are tracked; a key is forgotten as soon as
+ * its last submission completes. Keys share a fixed number of lock stripes,
+ * so any number of keys costs no more locks. A stripe is held only briefly
+ * to enqueue or dequeue, never while a supplier runs.
+ * </p>
+ *
+ * <p>
+ * A supplier is invoked on the thread that submits it if its key is idle,
+ * otherwise on the thread that completes its predecessor. Work that
+ * completes synchronously is run in a loop rather than recursively, so a
+ * long backlog for one key does not grow the stack.
+ * </p>
+ *
+ * @param <K>
+ *            key type.
+ */
+public final class KeyedSequencer<K> {
+
+    private static final class Stripe<K> {
+
+        /**
+         * waiting work for each busy key. Presence means busy.
+         */
+        private final Map<K, Queue<Task<?>>> busy = new HashMap<>();
+
+    }
+
+    private static final class Task<T> {
+
+        private final AtomicInteger phase = new AtomicInteger(RUNNING);
+
+        private final Promise<T> rval = new Promise<>();
+
+        private final SupplierT<? extends Promise<T>> src;
+
+        Task(final SupplierT<? extends Promise<T>> src) {
+            this.src = src;
+        }
+
+    }
+
+    private static final int ASYNC = 1;
+
+    private static final int DONE = 2;
+
+    private static final int RUNNING = 0;
+
+    private final Stripe<K>[] stripes;
+
+    /**
+     * Create a sequencer with a stripe count suited to the machine.
+     */
+    public KeyedSequencer() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a sequencer.
+     *
+     * @param stripes
+     *            lock stripes. Rounded up to a power of two. Must be
+     *            positive.
+     *
+     * @throws IllegalArgumentException
+     *             if the stripe count is not positive.
+     */
+    public KeyedSequencer(final int stripes) {
+
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+
+        final int n = Integer.highestOneBit(stripes) == stripes ? stripes
+                : Integer.highestOneBit(stripes) << 1;
+        @SuppressWarnings("unchecked")
+        final Stripe<K>[] s = (Stripe<K>[]) new Stripe<?>[n];
+        for (int i = 0; i < n; i++) {
+            s[i] = new Stripe<>();
+        }
+        this.stripes = s;
+
+    }
+
+    /**
+     * @return number of keys with work in flight.
+     */
+    public int size() {
+
+        int rval = 0;
+        for (final Stripe<K> s : this.stripes) {
+            synchronized (s) {
+                rval += s.busy.size();
+            }
+        }
+        return rval;
+
+    }
+
+    /**
+     * Submit work for a key. If the supplier throws or supplies null, the
+     * returned promise is broken and the key's next submission proceeds.
+     *
+     * @param <T>
+     *            promised value type.
+     *
+     * @param key
+     *            key. Must not be null.
+     *
+     * @param src
+     *            promise supplier. Must not be null.
+     *
+     * @return promise of the supplied promise's value.
+     *
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public <T> Promise<T> submit(final K key,
+            final SupplierT<? extends Promise<T>> src) {
+
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(src);
+
+        final Task<T> task = new Task<>(src);
+        final Stripe<K> s = stripe(key);
+        synchronized (s) {
+            final Queue<Task<?>> q = s.busy.get(key);
+            if (q != null) {
+                q.add(task);
+                return task.rval;
+            }
+            s.busy.put(key, new ArrayDeque<>());
+        }
+
+        drive(s, key, task);
+        return task.rval;
+
+    }
+
+    /**
+     * Run tasks for a key until one completes asynchronously or the key
+     * becomes idle.
+     */
+    private void drive(final Stripe<K> s, final K key, final Task<?> first) {
+
+        for (Task<?> t = first; t != null; t = next(s, key)) {
+            start(s, key, t);
+            if (t.phase.getAndSet(ASYNC) != DONE) {
+                /*
+                 * completion will resume
+                 */
+                return;
+            }
+        }
+
+    }
+
+    private Task<?> next(final Stripe<K> s, final K key) {
+
+        synchronized (s) {
+            final Queue<Task<?>> q = s.busy.get(key);
+            final Task<?> rval = q.poll();
+            if (rval == null) {
+                s.busy.remove(key);
+            }
+            return rval;
+        }
+
+    }
+
+    private <T> void start(final Stripe<K> s, final K key, final Task<T> t) {
+
+        final Promise<T> upstream;
+        try {
+            upstream = Objects.requireNonNull(t.src.get());
+        } catch (final Throwable err) {
+            t.rval.fail(err);
+            t.phase.set(DONE);
+            return;
+        }
+
+        upstream.dispatch((v, x) -> {
+            if (x == null) {
+                t.rval.succeed(v);
+            } else {
+                t.rval.fail(x);
+            }
+            if (t.phase.getAndSet(DONE) == ASYNC) {
+                drive(s, key, next(s, key));
+            }
+        });
+
+    }
+
+    private Stripe<K> stripe(final K key) {
+
+        final int h = key.hashCode();
+        return this.stripes[(h ^ (h >>> 16)) & (this.stripes.length - 1)];
+
+    }
+
+}
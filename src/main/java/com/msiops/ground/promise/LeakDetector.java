@@ -0,0 +1,302 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Detect {@link Async} instances that are never completed. Such an instance
+ * strands every continuation bound to its promise and every thread blocked
+ * on {@link Promise#toBlocking()}.
+ * </p>
+ *
+ * <p>
+ * Detection samples: roughly one in every <em>interval</em> new instances is
+ * tracked, and only tracked instances pay for capturing their creation site.
+ * A tracked instance is reported if it is garbage collected without being
+ * completed, or if it reaches a maximum age without being completed. Each
+ * instance is reported at most once. Completing an instance, or binding it to
+ * a future with {@link Async#watch(java.util.concurrent.Future)} or
+ * {@link Async#when(java.util.concurrent.Future, long, TimeUnit)}, stops
+ * tracking it. An instance whose promise was completed for it, as by a
+ * {@link Deadline}, is not reported.
+ * </p>
+ *
+ * <p>
+ * Reports are delivered on a shared timer thread and must be handled
+ * quickly. When detection is disabled, the cost to each new instance is a
+ * single field read.
+ * </p>
+ */
+public final class LeakDetector {
+
+    /**
+     * A tracked instance that was not completed.
+     */
+    public static final class Leak {
+
+        private final long age;
+
+        private final boolean collected;
+
+        private final Throwable site;
+
+        private Leak(final Throwable site, final long age,
+                final boolean collected) {
+            this.site = site;
+            this.age = age;
+            this.collected = collected;
+        }
+
+        /**
+         * @param unit
+         *            result unit. Must not be null.
+         *
+         * @return time from creation to detection.
+         */
+        public long age(final TimeUnit unit) {
+            return unit.convert(this.age, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * @return true if the instance was garbage collected, false if it
+         *         is still reachable and merely too old.
+         */
+        public boolean collected() {
+            return this.collected;
+        }
+
+        /**
+         * @return throwable whose stack trace is the creation site.
+         */
+        public Throwable creationSite() {
+            return this.site;
+        }
+
+        @Override
+        public String toString() {
+            return (this.collected ? "Async collected without completion"
+                    : "Async not completed") + " after "
+                    + age(TimeUnit.MILLISECONDS) + "ms";
+        }
+
+    }
+
+    static final class Tracker extends PhantomReference<Async<?>> {
+
+        private final long born = System.nanoTime();
+
+        private volatile boolean closed = false;
+
+        private final LeakDetector detector;
+
+        /**
+         * completed without the owner, as by a deadline, is not a leak.
+         */
+        private final Promise<?> promise;
+
+        private boolean reported = false;
+
+        private final Throwable site;
+
+        private Tracker(final Async<?> referent, final Promise<?> promise,
+                final LeakDetector detector) {
+            super(referent, detector.queue);
+            this.promise = promise;
+            this.detector = detector;
+            this.site = creationSite();
+        }
+
+        void close() {
+
+            this.closed = true;
+            this.detector.trackers.remove(this);
+            clear();
+
+        }
+
+    }
+
+    private static volatile LeakDetector active = null;
+
+    private static final String PACKAGE = LeakDetector.class.getPackage()
+            .getName() + ".";
+
+    /**
+     * Stop detecting. Instances already tracked are abandoned without report.
+     */
+    public static synchronized void disable() {
+
+        if (active != null) {
+            active.sweep.cancel(false);
+            active = null;
+        }
+
+    }
+
+    /**
+     * Start detecting, replacing any earlier configuration.
+     *
+     * @param interval
+     *            sampling interval. One in this many new instances, on
+     *            average, is tracked. Use 1 to track every instance. Must be
+     *            positive.
+     *
+     * @param maxAge
+     *            age at which a tracked incomplete instance is reported. Must
+     *            be positive.
+     *
+     * @param unit
+     *            age unit. Must not be null.
+     *
+     * @param reporter
+     *            leak consumer. Must not be null.
+     *
+     * @throws IllegalArgumentException
+     *             if interval or maximum age is not positive.
+     *
+     * @throws NullPointerException
+     *             if any reference argument is null.
+     */
+    public static synchronized void enable(final int interval,
+            final long maxAge, final TimeUnit unit,
+            final Consumer<? super Leak> reporter) {
+
+        if (interval <= 0 || maxAge <= 0) {
+            throw new IllegalArgumentException(
+                    "interval and maximum age must be positive");
+        }
+        Objects.requireNonNull(reporter);
+
+        disable();
+        active = new LeakDetector(interval, unit.toNanos(maxAge), reporter);
+
+    }
+
+    /**
+     * @return tracker for a new instance, or null if it is not sampled.
+     */
+    static Tracker track(final Async<?> a, final Promise<?> p) {
+
+        final LeakDetector d = active;
+        if (d == null) {
+            return null;
+        }
+        if (d.interval > 1
+                && ThreadLocalRandom.current().nextInt(d.interval) != 0) {
+            return null;
+        }
+        final Tracker rval = new Tracker(a, p, d);
+        d.trackers.add(rval);
+        return rval;
+
+    }
+
+    /**
+     * @return throwable whose trace starts at the first frame outside this
+     *         package.
+     */
+    private static Throwable creationSite() {
+
+        final Throwable rval = new Throwable("Async created here");
+        final StackTraceElement[] trace = rval.getStackTrace();
+        int skip = 0;
+        while (skip < trace.length - 1
+                && trace[skip].getClassName().startsWith(PACKAGE)) {
+            skip++;
+        }
+        rval.setStackTrace(Arrays.copyOfRange(trace, skip, trace.length));
+        return rval;
+
+    }
+
+    private final int interval;
+
+    private final long maxAge;
+
+    private final ReferenceQueue<Async<?>> queue = new ReferenceQueue<>();
+
+    private final Consumer<? super Leak> reporter;
+
+    private final ScheduledFuture<?> sweep;
+
+    private final Set<Tracker> trackers = ConcurrentHashMap.newKeySet();
+
+    private LeakDetector(final int interval, final long maxAge,
+            final Consumer<? super Leak> reporter) {
+
+        this.interval = interval;
+        this.maxAge = maxAge;
+        this.reporter = reporter;
+
+        final long period = Math.max(TimeUnit.MILLISECONDS.toNanos(10),
+                Math.min(maxAge, TimeUnit.SECONDS.toNanos(1)));
+        this.sweep = SharedTimer.repeat(this::sweep, period,
+                TimeUnit.NANOSECONDS);
+
+    }
+
+    private void report(final Tracker t, final long now,
+            final boolean collected) {
+
+        t.reported = true;
+        try {
+            this.reporter.accept(new Leak(t.site, now - t.born, collected));
+        } catch (final Throwable err) {
+            /*
+             * reporter must not stop the sweep
+             */
+        }
+
+    }
+
+    /*
+     * runs only on the timer thread, so reported needs no synchronization.
+     */
+    private void sweep() {
+
+        final long now = System.nanoTime();
+
+        for (Reference<? extends Async<?>> r = this.queue.poll(); r != null; r = this.queue
+                .poll()) {
+            final Tracker t = (Tracker) r;
+            this.trackers.remove(t);
+            if (!t.closed && !t.reported && !t.promise.isComplete()) {
+                report(t, now, true);
+            }
+        }
+
+        for (final Tracker t : this.trackers) {
+            if (!t.closed && !t.reported && now - t.born > this.maxAge
+                    && !t.promise.isComplete()) {
+                report(t, now, false);
+            }
+        }
+
+    }
+
+}
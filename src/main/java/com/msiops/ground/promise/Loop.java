@@ -0,0 +1,131 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.msiops.footing.functional.SupplierT;
+
+/**
+ * <p>
+ * Repeat an asynchronous step until it yields false. A step whose promise is
+ * already complete is followed by the next step in a loop rather than a
+ * nested continuation, so any number of synchronous steps runs in constant
+ * stack. A step that completes later resumes the loop on its completing
+ * thread.
+ * </p>
+ *
+ * <p>
+ * The loop stops at the first broken step, or if a step throws or supplies
+ * null.
+ * </p>
+ */
+final class Loop {
+
+    private static final class Step {
+
+        private final AtomicInteger phase = new AtomicInteger(RUNNING);
+
+        private Boolean value = null;
+
+        private Throwable x = null;
+
+    }
+
+    private static final int ASYNC = 1;
+
+    private static final int DONE = 2;
+
+    private static final int RUNNING = 0;
+
+    /**
+     * @return promise of the number of steps run, fulfilled when a step yields
+     *         false.
+     */
+    static Promise<Long> whileTrue(
+            final SupplierT<? extends Promise<Boolean>> body) {
+
+        final Loop l = new Loop(body);
+        l.run();
+        return l.rval;
+
+    }
+
+    private final SupplierT<? extends Promise<Boolean>> body;
+
+    private long count = 0;
+
+    private final Promise<Long> rval = new Promise<>();
+
+    private Loop(final SupplierT<? extends Promise<Boolean>> body) {
+        this.body = body;
+    }
+
+    /**
+     * @return true if the loop should go on.
+     */
+    private boolean accept(final Step s) {
+
+        this.count++;
+        if (s.x != null) {
+            this.rval.fail(s.x);
+            return false;
+        }
+        if (!s.value) {
+            this.rval.succeed(this.count);
+            return false;
+        }
+        return true;
+
+    }
+
+    private void run() {
+
+        while (true) {
+
+            final Promise<Boolean> p;
+            try {
+                p = Objects.requireNonNull(this.body.get());
+            } catch (final Throwable t) {
+                this.rval.fail(t);
+                return;
+            }
+
+            final Step s = new Step();
+            p.dispatch((v, x) -> {
+                s.value = v;
+                s.x = x;
+                if (s.phase.getAndSet(DONE) == ASYNC && accept(s)) {
+                    run();
+                }
+            });
+
+            if (s.phase.getAndSet(ASYNC) != DONE) {
+                /*
+                 * completion will resume
+                 */
+                return;
+            }
+            if (!accept(s)) {
+                return;
+            }
+
+        }
+
+    }
+
+}
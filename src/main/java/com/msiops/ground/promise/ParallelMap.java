@@ -0,0 +1,227 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.msiops.footing.functional.FunT1;
+
+/**
+ * <p>
+ * Apply an asynchronous function to the elements of a stream, several at a
+ * time. The source is pulled ahead of the consumer until the number of
+ * elements held, running or waiting to be consumed, reaches the parallelism.
+ * </p>
+ *
+ * <p>
+ * In ordered mode each element is given its output slot when it is pulled,
+ * so results are consumed in source order and the slots form a reorder buffer
+ * bounded by the parallelism. In unordered mode results are queued as they
+ * complete.
+ * </p>
+ *
+ * @param <T>
+ *            element type.
+ *
+ * @param <R>
+ *            result type.
+ */
+final class ParallelMap<T, R> implements PromiseStream<R> {
+
+    private boolean done = false;
+
+    private final FunT1<? super T, ? extends Promise<? extends R>> f;
+
+    private final Object lock = new Object();
+
+    private final boolean ordered;
+
+    private Promise<Optional<R>> out = null;
+
+    private final int parallelism;
+
+    private boolean pulling = false;
+
+    private final Queue<Promise<Optional<R>>> queue = new ArrayDeque<>();
+
+    private int running = 0;
+
+    private final PromiseStream<T> src;
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    ParallelMap(final PromiseStream<T> src, final int parallelism,
+            final FunT1<? super T, ? extends Promise<? extends R>> f,
+            final boolean ordered) {
+        this.src = src;
+        this.parallelism = parallelism;
+        this.f = f;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public Promise<Optional<R>> next() {
+
+        Promise<Optional<R>> rval;
+        synchronized (this.lock) {
+            rval = this.queue.poll();
+            if (rval == null) {
+                if (this.done && !this.pulling && this.running == 0) {
+                    rval = Promises.fulfilled(Optional.empty());
+                } else {
+                    rval = new Promise<>();
+                    this.out = rval;
+                }
+            }
+        }
+        pump();
+        return rval;
+
+    }
+
+    private void arrive(final Optional<T> v, final Throwable x,
+            final Promise<Optional<R>> slot) {
+
+        if (x != null || !v.isPresent()) {
+            final Promise<Optional<R>> target;
+            synchronized (this.lock) {
+                this.pulling = false;
+                this.done = true;
+                if (slot != null) {
+                    target = slot;
+                } else if (x != null) {
+                    target = claim();
+                } else if (this.running == 0 && this.out != null) {
+                    target = this.out;
+                    this.out = null;
+                } else {
+                    target = null;
+                }
+            }
+            if (target == null) {
+                return;
+            }
+            if (x != null) {
+                target.fail(x);
+            } else {
+                target.succeed(Optional.empty());
+            }
+            return;
+        }
+
+        synchronized (this.lock) {
+            this.pulling = false;
+            this.running++;
+        }
+
+        Promise<? extends R> r;
+        try {
+            r = Objects.requireNonNull(this.f.apply(v.get()));
+        } catch (final Throwable t) {
+            r = Promises.broken(t);
+        }
+
+        r.dispatch((rv, rx) -> {
+            final Promise<Optional<R>> target;
+            final Promise<Optional<R>> end;
+            synchronized (this.lock) {
+                this.running--;
+                target = slot == null ? claim() : slot;
+                if (this.done && this.running == 0 && this.out != null) {
+                    end = this.out;
+                    this.out = null;
+                } else {
+                    end = null;
+                }
+            }
+            if (rx == null) {
+                target.succeed(Optional.of(rv));
+            } else {
+                target.fail(rx);
+            }
+            if (end != null) {
+                end.succeed(Optional.empty());
+            }
+            pump();
+        });
+
+    }
+
+    /**
+     * Take the waiting consumer's promise, or queue a new one. Must hold the
+     * lock.
+     */
+    private Promise<Optional<R>> claim() {
+
+        final Promise<Optional<R>> rval = this.out;
+        if (rval != null) {
+            this.out = null;
+            return rval;
+        }
+        final Promise<Optional<R>> p = new Promise<>();
+        this.queue.add(p);
+        return p;
+
+    }
+
+    /**
+     * Start pulls while there is room. Only one pull is outstanding at a time.
+     * Reentrant invocations, such as from a pull that completes
+     * synchronously, are folded into the running one.
+     */
+    private void pump() {
+
+        if (this.wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            while (true) {
+                final Promise<Optional<R>> slot;
+                synchronized (this.lock) {
+                    final int held = this.ordered ? Math.max(
+                            this.queue.size(), this.running) : this.queue
+                            .size() + this.running;
+                    if (this.pulling || this.done
+                            || held >= this.parallelism) {
+                        break;
+                    }
+                    this.pulling = true;
+                    slot = this.ordered ? claim() : null;
+                }
+
+                Promise<Optional<T>> p;
+                try {
+                    p = Objects.requireNonNull(this.src.next());
+                } catch (final Throwable t) {
+                    p = Promises.broken(t);
+                }
+                p.dispatch((v, x) -> {
+                    arrive(v, x, slot);
+                    pump();
+                });
+            }
+            missed = this.wip.addAndGet(-missed);
+        } while (missed != 0);
+
+    }
+
+}
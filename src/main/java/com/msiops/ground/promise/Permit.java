@@ -0,0 +1,30 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+/**
+ * Right to proceed, granted by an asynchronous coordination primitive such
+ * as {@link AsyncSemaphore}. The holder must release it when done, after
+ * which the next waiter, if any, is granted.
+ */
+public interface Permit {
+
+    /**
+     * Give the permit back. Only the first invocation has any effect.
+     */
+    void release();
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pull a stream ahead of its consumer. Up to a fixed number of elements are
+ * requested from the source in advance, one at a time, so the source
+ * produces the next elements while the consumer works on the current one.
+ *
+ * @param <T>
+ *            element type.
+ */
+final class Prefetch<T> implements PromiseStream<T> {
+
+    private static final int ASYNC = 1;
+
+    private static final int DONE = 2;
+
+    private static final int RUNNING = 0;
+
+    private boolean done = false;
+
+    private boolean pulling = false;
+
+    private final int size;
+
+    private final Queue<Promise<Optional<T>>> slots = new ArrayDeque<>();
+
+    private final PromiseStream<T> src;
+
+    Prefetch(final PromiseStream<T> src, final int size) {
+        this.src = src;
+        this.size = size;
+    }
+
+    @Override
+    public Promise<Optional<T>> next() {
+
+        pump();
+        final Promise<Optional<T>> rval;
+        synchronized (this.slots) {
+            rval = this.slots.poll();
+        }
+        if (rval == null) {
+            return Promises.fulfilled(Optional.empty());
+        }
+        pump();
+        return rval;
+
+    }
+
+    /**
+     * Pull from the source while there is room. Only one pull is outstanding
+     * at a time. Pulls that complete synchronously are followed in a loop.
+     */
+    private void pump() {
+
+        while (true) {
+
+            final Promise<Optional<T>> slot = new Promise<>();
+            synchronized (this.slots) {
+                if (this.pulling || this.done
+                        || this.slots.size() >= this.size) {
+                    return;
+                }
+                this.pulling = true;
+                this.slots.add(slot);
+            }
+
+            Promise<Optional<T>> p;
+            try {
+                p = Objects.requireNonNull(this.src.next());
+            } catch (final Throwable t) {
+                p = Promises.broken(t);
+            }
+
+            final AtomicInteger phase = new AtomicInteger(RUNNING);
+            p.dispatch((v, x) -> {
+                synchronized (this.slots) {
+                    this.pulling = false;
+                    if (x != null || !v.isPresent()) {
+                        this.done = true;
+                    }
+                }
+                if (x == null) {
+                    slot.succeed(v);
+                } else {
+                    slot.fail(x);
+                }
+                if (phase.getAndSet(DONE) == ASYNC) {
+                    pump();
+                }
+            });
+
+            if (phase.getAndSet(ASYNC) != DONE) {
+                return;
+            }
+
+        }
+
+    }
+
+}
@@ -18,15 +18,19 @@ package com.msiops.ground.promise;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
+import org.reactivestreams.Publisher;
+
 import com.msiops.footing.functional.FunT1;
 import com.msiops.footing.functional.FunT2;
 import com.msiops.footing.functional.SupplierT;
@@ -65,18 +69,110 @@ import com.msiops.ground.either.Either;
  */
 public final class Promise<T> {
 
+    /**
+     * installed monitor or null. Read once per event site.
+     */
+    static volatile PromiseMonitor monitor = null;
+
+    /**
+     * installed context propagator or null.
+     */
+    static volatile ContextPropagator propagator = null;
+
+    /**
+     * assembly trace sampling interval, or zero if not tracing.
+     */
+    static volatile int traceInterval = 0;
+
+    /**
+     * Complete a downstream promise from an upstream one. This is plumbing
+     * rather than a continuation, so it is bound without capturing context or
+     * notifying the monitor; the downstream promise's own links run in its
+     * context.
+     */
+    private static <R> void forward(final Promise<? extends R> upstream,
+            final Promise<R> downstream) {
+
+        upstream.enqueue((v, x) -> {
+            if (x == null) {
+                downstream.succeed(v);
+            } else {
+                downstream.fail(x);
+            }
+        });
+
+    }
+
+    /**
+     * registration site if sampled while tracing, else null.
+     */
+    private AssemblyTrace assembly = null;
+
+    /**
+     * creation time if created while monitored, else zero.
+     */
+    private long born = 0;
+
     private boolean completed = false;
 
+    /**
+     * context in which this promise's links run unless they carry their own,
+     * taken from the registration that derived it, or null.
+     */
+    private Object context = null;
+
+    /**
+     * deadline inherited from the root promise, or null.
+     */
+    private final Deadline deadline;
+
     private Throwable error = null;
 
+    /**
+     * true if broken by the deadline.
+     */
+    private boolean expired = false;
+
     private final List<Link<T>> pending = new ArrayList<Link<T>>();
 
     private T value = null;
 
     Promise() {
+        this(null);
+    }
+
+    Promise(final Deadline deadline) {
+
+        this.deadline = deadline;
+
+        final PromiseMonitor m = monitor;
+        if (m != null) {
+            this.born = System.nanoTime();
+            try {
+                m.created();
+            } catch (final Throwable err) {
+                /*
+                 * monitor must not disturb the chain
+                 */
+            }
+        }
+
+        if (deadline != null) {
+            deadline.track(this);
+        }
 
     }
 
+    /**
+     * Retrieve the deadline this promise is under. A promise inherits the
+     * deadline of the promise it was derived from.
+     *
+     * @return deadline, or empty if there is none.
+     */
+    public Optional<Deadline> deadline() {
+        return Optional.ofNullable(this.deadline);
+    }
+
     /**
      * <p>
      * Perform on completion. Produce a new promise tied to any completion
@@ -101,12 +197,15 @@ public final class Promise<T> {
 
         Objects.requireNonNull(src);
 
-        final Promise<R> rval = new Promise<>();
+        final Promise<R> rval = new Promise<>(this.deadline);
 
         final Link<T> link = new Link<T>() {
             @Override
             public void next(final T value, final Throwable x) {
 
+                if (rval.overdue()) {
+                    return;
+                }
                 final Promise<? extends R> upstream;
                 try {
                     upstream = src.get();
@@ -117,13 +216,12 @@ public final class Promise<T> {
                 /*
                  * don't care about success or failure
                  */
-                upstream.forEach(rval::succeed);
-                upstream.on(Throwable.class, rval::fail);
+                forward(upstream, rval);
 
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.DEFER, src, rval);
 
         return rval;
 
@@ -155,7 +253,7 @@ public final class Promise<T> {
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.EMIT, h, null);
 
     }
 
@@ -208,7 +306,7 @@ public final class Promise<T> {
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.FOR_EACH, h, null);
 
     }
 
@@ -237,12 +335,18 @@ public final class Promise<T> {
 
         Objects.requireNonNull(f);
 
-        final Promise<R> rval = new Promise<>();
+        final Promise<R> rval = new Promise<>(this.deadline);
+        if (traceInterval != 0) {
+            rval.assembly = AssemblyTrace.capture("map", traceInterval);
+        }
 
         final Link<T> link = new Link<T>() {
             @Override
             public void next(final T value, final Throwable x) {
                 if (x == null) {
+                    if (rval.overdue()) {
+                        return;
+                    }
                     final R rv;
                     try {
                         rv = f.apply(value);
@@ -257,7 +361,7 @@ public final class Promise<T> {
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.MAP, f, rval);
 
         return rval;
 
@@ -292,7 +396,7 @@ public final class Promise<T> {
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.MAP_ERROR, xf, rval);
 
         return rval;
 
@@ -350,7 +454,7 @@ public final class Promise<T> {
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.ON, h, null);
 
     }
 
@@ -398,7 +502,7 @@ public final class Promise<T> {
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.ON_CANCELED, h, null);
     }
 
     /**
@@ -427,7 +531,7 @@ public final class Promise<T> {
         Objects.requireNonNull(sel);
         Objects.requireNonNull(h);
 
-        final Promise<T> rval = new Promise<>();
+        final Promise<T> rval = new Promise<>(this.deadline);
 
         final Link<T> link = new Link<T>() {
             @Override
@@ -438,6 +542,9 @@ public final class Promise<T> {
                      * only respond to selected failure
                      */
 
+                    if (rval.overdue()) {
+                        return;
+                    }
                     final Promise<? extends T> upstream;
                     try {
                         upstream = h.apply(sel.cast(x));
@@ -445,8 +552,7 @@ public final class Promise<T> {
                         rval.fail(t);
                         return;
                     }
-                    upstream.forEach(rval::succeed);
-                    upstream.on(Throwable.class, rval::fail);
+                    forward(upstream, rval);
                 } else {
                     rval.succeed(value);
                 }
@@ -454,7 +560,7 @@ public final class Promise<T> {
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.RECOVER, h, rval);
 
         return rval;
     }
@@ -500,7 +606,7 @@ public final class Promise<T> {
             }
         };
 
-        dispatch(link);
+        bind(link, rval);
 
         return rval;
     }
@@ -533,13 +639,19 @@ public final class Promise<T> {
 
         Objects.requireNonNull(mf);
 
-        final Promise<R> rval = new Promise<>();
+        final Promise<R> rval = new Promise<>(this.deadline);
+        if (traceInterval != 0) {
+            rval.assembly = AssemblyTrace.capture("then", traceInterval);
+        }
 
         final Link<T> link = new Link<T>() {
             @Override
             public void next(final T value, final Throwable x) {
 
                 if (x == null) {
+                    if (rval.overdue()) {
+                        return;
+                    }
                     final Promise<? extends R> upstream;
                     try {
                         upstream = mf.apply(value);
@@ -547,15 +659,14 @@ public final class Promise<T> {
                         rval.fail(t);
                         return;
                     }
-                    upstream.forEach(rval::succeed);
-                    upstream.on(Throwable.class, rval::fail);
+                    forward(upstream, rval);
                 } else {
                     rval.fail(x);
                 }
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.THEN, mf, rval);
 
         return rval;
 
@@ -612,7 +723,10 @@ public final class Promise<T> {
         Objects.requireNonNull(mf);
         Objects.requireNonNull(retry);
 
-        final Promise<R> rval = new Promise<>();
+        final Promise<R> rval = new Promise<>(this.deadline);
+        if (traceInterval != 0) {
+            rval.assembly = AssemblyTrace.capture("then", traceInterval);
+        }
 
         final Link<T> link = new Link<T>() {
 
@@ -649,18 +763,26 @@ public final class Promise<T> {
             }
 
             private void proceed(final T value) {
+                if (rval.overdue()) {
+                    return;
+                }
                 try {
                     this.upstream.set(mf.apply(value));
                 } catch (final Throwable t) {
                     maybeRetry(t);
                     return;
                 }
-                this.upstream.get().forEach(rval::succeed);
-                this.upstream.get().on(Throwable.class, this::maybeRetry);
+                this.upstream.get().enqueue((uv, ux) -> {
+                    if (ux == null) {
+                        rval.succeed(uv);
+                    } else {
+                        maybeRetry(ux);
+                    }
+                });
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.THEN, mf, rval);
 
         return rval;
     }
@@ -685,6 +807,29 @@ public final class Promise<T> {
 
     }
 
+    /**
+     * <p>
+     * Convert to a reactive streams publisher. The publisher signals at most
+     * one element to each subscriber. If this promise is fulfilled, the value
+     * is signaled only after the subscriber requests it, followed immediately
+     * by completion. If this promise is broken, the error is signaled whether
+     * or not the subscriber has requested anything.
+     * </p>
+     *
+     * <p>
+     * No thread is used and nothing is buffered beyond this promise. Signals
+     * are sent on the thread that completes this promise or the thread that
+     * requests the value, whichever comes last.
+     * </p>
+     *
+     * @return publisher of this promise's value.
+     */
+    public Publisher<T> toPublisher() {
+
+        return new PublisherAdapter<>(this);
+
+    }
+
     /**
      * Filter the value.
      *
@@ -730,82 +875,228 @@ public final class Promise<T> {
             }
         };
 
-        dispatch(link);
+        dispatch(link, PromiseMonitor.Stage.WHEN, f, rval);
 
         return rval;
     }
 
     void cancel() {
 
-        complete(null, new CancellationException());
+        complete(null, new CancellationException(), false);
 
     }
 
     void complete(final Either<? extends T, ? extends Throwable> e) {
 
         e.forEach(v -> {
-            complete(v, null);
+            complete(v, null, false);
         });
 
         e.swap().forEach(x -> {
-            complete(null, x);
+            complete(null, x, false);
         });
 
     }
 
+    /**
+     * @return true if complete.
+     */
+    boolean isComplete() {
+
+        synchronized (this.pending) {
+            return this.completed;
+        }
+
+    }
+
+    /**
+     * Break with a timeout because the deadline passed. Has no effect if
+     * already complete.
+     */
+    void expire() {
+
+        complete(null, new TimeoutException("deadline exceeded"), true);
+
+    }
+
     void fail(final Throwable x) {
 
-        complete(null, Objects.requireNonNull(x));
+        complete(null, Objects.requireNonNull(x), false);
 
     }
 
     void succeed(final T v) {
 
-        complete(Objects.requireNonNull(v), null);
+        complete(Objects.requireNonNull(v), null, false);
+
+    }
+
+    private boolean overdue() {
+
+        if (this.deadline == null || !this.deadline.expired()) {
+            return false;
+        }
+        expire();
+        return true;
 
     }
 
-    private void complete(final T v, final Throwable x) {
+    /**
+     * @param expiring
+     *            true if the deadline is breaking the promise. Expiry of a
+     *            complete promise, and completion of an expired one, are
+     *            ignored rather than treated as double completion.
+     */
+    private void complete(final T v, final Throwable x,
+            final boolean expiring) {
 
         final List<Link<T>> links;
         synchronized (this.pending) {
             if (this.completed) {
+                if (expiring || this.expired) {
+                    /*
+                     * lost a race with the deadline
+                     */
+                    return;
+                }
                 throw new AssertionError(
                         "completion invoked on completed promise");
             }
             this.completed = true;
+            this.expired = expiring;
             this.value = v;
             this.error = x;
             links = new ArrayList<>(this.pending);
             this.pending.clear();
         }
 
-        links.forEach(l -> {
-            try {
-                l.next(this.value, this.error);
-            } catch (final Throwable err) {
-                throw new AssertionError("unexpected error back-propagation",
-                        err);
+        if (this.deadline != null) {
+            this.deadline.release(this);
+        }
+
+        if (x != null && this.assembly != null) {
+            this.assembly.attach(x);
+        }
+
+        if (this.born != 0) {
+            final PromiseMonitor m = monitor;
+            if (m != null) {
+                final PromiseMonitor.Outcome outcome;
+                if (x == null) {
+                    outcome = PromiseMonitor.Outcome.FULFILLED;
+                } else if (x instanceof CancellationException) {
+                    outcome = PromiseMonitor.Outcome.CANCELED;
+                } else {
+                    outcome = PromiseMonitor.Outcome.BROKEN;
+                }
+                try {
+                    m.completed(outcome, System.nanoTime() - this.born);
+                } catch (final Throwable err) {
+                    /*
+                     * monitor must not disturb the chain
+                     */
+                }
             }
-        });
+        }
+
+        final ContextPropagator cp = this.context == null ? null : propagator;
+        final Object prev = cp == null ? null : ContextLink.enter(cp,
+                this.context);
+        try {
+            links.forEach(l -> {
+                try {
+                    l.next(this.value, this.error);
+                } catch (final Throwable err) {
+                    throw new AssertionError(
+                            "unexpected error back-propagation", err);
+                }
+            });
+        } finally {
+            if (cp != null) {
+                ContextLink.exit(cp, prev);
+            }
+        }
     }
 
-    private void dispatch(final Link<T> link) {
+    void dispatch(final Link<T> link) {
+
+        bind(link, null);
+
+    }
+
+    /**
+     * Bind a link in the registering thread's context. The propagator's
+     * current context is captured and given to the downstream promise. The
+     * link is wrapped only if the captured context is not the one this
+     * promise already runs its links in, so a chain built in one context
+     * allocates no wrappers.
+     */
+    private void bind(final Link<T> link, final Promise<?> downstream) {
+
+        final ContextPropagator cp = propagator;
+        if (cp == null) {
+            enqueue(link);
+            return;
+        }
+
+        final Object captured = ContextLink.capture(cp);
+        if (downstream != null) {
+            downstream.context = captured;
+        }
+        enqueue(captured == this.context ? link : new ContextLink<>(link,
+                cp, captured));
+
+    }
+
+    private void dispatch(final Link<T> link,
+            final PromiseMonitor.Stage stage, final Object fn,
+            final Promise<?> downstream) {
+
+        final PromiseMonitor m = monitor;
+        bind(m == null ? link : TimedLink.wrap(link, stage, fn, m),
+                downstream);
+
+    }
+
+    private void enqueue(final Link<T> link) {
 
         final boolean immediate;
+        final int waiting;
         synchronized (this.pending) {
             immediate = this.completed;
             if (!immediate) {
                 this.pending.add(link);
             }
+            waiting = this.pending.size();
+        }
+
+        if (!immediate) {
+            final PromiseMonitor m = monitor;
+            if (m != null) {
+                try {
+                    m.bound(waiting);
+                } catch (final Throwable err) {
+                    /*
+                     * monitor must not disturb the chain
+                     */
+                }
+            }
         }
 
         if (immediate) {
+            final ContextPropagator cp = this.context == null ? null
+                    : propagator;
+            final Object prev = cp == null ? null : ContextLink.enter(cp,
+                    this.context);
             try {
                 link.next(this.value, this.error);
             } catch (final Throwable err) {
                 throw new AssertionError("unexpected error back-propagation",
                         err);
+            } finally {
+                if (cp != null) {
+                    ContextLink.exit(cp, prev);
+                }
             }
         }
     }
@@ -0,0 +1,123 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.msiops.footing.functional.SupplierT;
+
+/**
+ * <p>
+ * Share in-flight promises among concurrent callers. The first caller for a
+ * key supplies the promise. Callers arriving for the same key before it
+ * completes receive the same promise without invoking their suppliers. Once
+ * the promise completes it is forgotten, so the next caller supplies a fresh
+ * one. This is sometimes called <em>single flight</em> or request
+ * coalescing; it limits backend load to one request per key at a time.
+ * </p>
+ *
+ * <p>
+ * Nothing is cached after completion. Use a cache for that.
+ * </p>
+ *
+ * @param <K>
+ *            key type.
+ *
+ * @param <V>
+ *            promised value type.
+ *
+ * @see Promises#singleflight(com.msiops.footing.functional.FunT1)
+ */
+public final class PromiseCache<K, V> {
+
+    private final ConcurrentMap<K, Promise<V>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * <p>
+     * Retrieve the in-flight promise for a key, or start one. The supplier is
+     * invoked on the calling thread only if no promise for the key is in
+     * flight.
+     * </p>
+     *
+     * <p>
+     * If the supplier throws or supplies null, the returned promise is broken
+     * and every caller sharing it sees the failure.
+     * </p>
+     *
+     * @param key
+     *            key. Must not be null.
+     *
+     * @param src
+     *            promise supplier. Must not be null.
+     *
+     * @return shared promise for the key.
+     *
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public Promise<V> get(final K key,
+            final SupplierT<? extends Promise<V>> src) {
+
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(src);
+
+        final Promise<V> existing = this.inflight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        final Promise<V> rval = new Promise<>();
+        final Promise<V> raced = this.inflight.putIfAbsent(key, rval);
+        if (raced != null) {
+            return raced;
+        }
+
+        final Promise<V> upstream;
+        try {
+            upstream = Objects.requireNonNull(src.get());
+        } catch (final Throwable t) {
+            this.inflight.remove(key, rval);
+            rval.fail(t);
+            return rval;
+        }
+
+        upstream.dispatch((v, x) -> {
+            /*
+             * forget before completing so that continuations asking again
+             * start a fresh flight.
+             */
+            this.inflight.remove(key, rval);
+            if (x == null) {
+                rval.succeed(v);
+            } else {
+                rval.fail(x);
+            }
+        });
+
+        return rval;
+
+    }
+
+    /**
+     * @return number of keys in flight.
+     */
+    public int size() {
+        return this.inflight.size();
+    }
+
+}
@@ -0,0 +1,136 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+/**
+ * <p>
+ * Receive promise lifecycle events. A monitor is installed process-wide with
+ * {@link Promises#monitor(PromiseMonitor)}. When none is installed, the cost
+ * to each promise is a single field read per event site.
+ * </p>
+ *
+ * <p>
+ * Events are delivered synchronously on the thread that causes them, often
+ * while other continuations wait. Implementations must be thread-safe, must
+ * return quickly, and should not throw. Anything thrown is ignored.
+ * </p>
+ *
+ * <p>
+ * Only promises created while a monitor is installed report completion, so
+ * that created and completed counts stay consistent across installation.
+ * </p>
+ *
+ * <p>
+ * A monitor can also ask to hear about slow continuations by returning a
+ * non-negative {@link #slowThreshold()}. Each continuation bound while such
+ * a monitor is installed is then timed. Time spent in continuations it
+ * triggers downstream is excluded, so the report blames the function that
+ * was actually slow.
+ * </p>
+ *
+ * @see PromiseStats
+ */
+public interface PromiseMonitor {
+
+    /**
+     * How a promise completed.
+     */
+    public enum Outcome {
+
+        /**
+         * broken with anything other than cancellation.
+         */
+        BROKEN,
+
+        /**
+         * broken with {@link java.util.concurrent.CancellationException}.
+         */
+        CANCELED,
+
+        /**
+         * fulfilled.
+         */
+        FULFILLED
+
+    }
+
+    /**
+     * Kind of continuation, named for the method that bound it.
+     */
+    public enum Stage {
+
+        DEFER, EMIT, FOR_EACH, MAP, MAP_ERROR, ON, ON_CANCELED, RECOVER, THEN,
+        WHEN
+
+    }
+
+    /**
+     * A continuation was bound to an incomplete promise and is waiting.
+     *
+     * @param pending
+     *            number of continuations now waiting on the promise,
+     *            including this one.
+     */
+    void bound(int pending);
+
+    /**
+     * A promise was completed.
+     *
+     * @param outcome
+     *            how it completed.
+     *
+     * @param nanos
+     *            time in nanoseconds from creation to completion.
+     */
+    void completed(Outcome outcome, long nanos);
+
+    /**
+     * A promise was created.
+     */
+    void created();
+
+    /**
+     * A continuation ran longer than the {@link #slowThreshold() threshold}.
+     * It held up the completing thread, and every continuation waiting behind
+     * it, for that long.
+     *
+     * @param stage
+     *            kind of continuation.
+     *
+     * @param continuation
+     *            class of the function passed when the continuation was
+     *            bound; for a lambda, its synthetic class, whose name
+     *            identifies the enclosing class.
+     *
+     * @param nanos
+     *            time in nanoseconds spent in the continuation itself.
+     */
+    default void slow(final Stage stage, final Class<?> continuation,
+            final long nanos) {
+
+    }
+
+    /**
+     * Continuation run time, in nanoseconds, above which {@link #slow} is
+     * invoked. Consulted when each continuation is bound.
+     *
+     * @return threshold, or a negative value to skip timing entirely.
+     */
+    default long slowThreshold() {
+        return -1;
+    }
+
+}
@@ -0,0 +1,255 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.msiops.footing.functional.SupplierT;
+
+/**
+ * <p>
+ * Bound the lifetime of promises spawned on behalf of a task. Asyncs
+ * obtained from {@link #async()} are children of the scope. The scope's
+ * result is not complete until the body's promise and every child have
+ * settled.
+ * </p>
+ *
+ * <p>
+ * If the body fails, or the scope is {@link #cancel() canceled} because its
+ * result is no longer wanted, outstanding children are canceled so the work
+ * behind them can stop, and children created afterward are canceled at
+ * once. Completing a child after its scope canceled it is ignored. Asyncs created any other way, including those the library uses
+ * internally, are never children.
+ * </p>
+ *
+ * <p>
+ * Scopes nest through {@link #scope()}. A nested scope is a child of its
+ * parent: canceling the parent cancels it, and the parent's result waits for
+ * the nested scope's result.
+ * </p>
+ */
+public final class PromiseScope {
+
+    private static final int IDLE = 0;
+
+    private static final int RAN = 1;
+
+    private static final int SKIPPED = 2;
+
+    private volatile boolean canceled = false;
+
+    private final Set<Async<?>> children = ConcurrentHashMap.newKeySet();
+
+    private Throwable error = null;
+
+    /**
+     * set when the body fails, after which new children are revoked at once.
+     */
+    private volatile boolean failed = false;
+
+    private final Set<PromiseScope> nested = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    /**
+     * whether the body has run, or was skipped because the scope was
+     * canceled first.
+     */
+    private final AtomicInteger phase = new AtomicInteger(IDLE);
+
+    private final Promise<Object> result = new Promise<>();
+
+    private Object value = null;
+
+    /**
+     * @return number of children, including nested scopes, not yet settled.
+     */
+    public int active() {
+        return this.children.size() + this.nested.size();
+    }
+
+    /**
+     * Create a child async. If the scope is already canceled or its body has
+     * failed, the async's promise is canceled at once. The scope's result
+     * waits for the child, and so completes only once the body has run or
+     * the scope is canceled.
+     *
+     * @param <T>
+     *            promised value type.
+     *
+     * @return new async.
+     *
+     * @throws IllegalStateException
+     *             if the scope's result is already complete.
+     */
+    public <T> Async<T> async() {
+
+        enter();
+        final Async<T> rval = Promises.async();
+        this.children.add(rval);
+        rval.promise().dispatch((v, x) -> {
+            this.children.remove(rval);
+            settle();
+        });
+        if (this.canceled || this.failed) {
+            rval.revoke();
+        }
+        return rval;
+
+    }
+
+    /**
+     * Abandon the scope. Outstanding children and nested scopes are
+     * canceled, as are children created later. The result is broken with
+     * {@link CancellationException} once everything has settled. If the body
+     * has not run yet, it never will be.
+     */
+    public void cancel() {
+
+        this.canceled = true;
+        revokeAll();
+        if (this.phase.compareAndSet(IDLE, SKIPPED)) {
+            settle();
+        }
+
+    }
+
+    /**
+     * <p>
+     * Run a body in this scope. The body is invoked synchronously, unless the
+     * scope was canceled first, in which case the body is not invoked and
+     * the canceled result is returned.
+     * </p>
+     *
+     * <p>
+     * If the body throws, supplies null, or its promise is broken,
+     * outstanding children are canceled. The returned promise has the body's
+     * outcome, or is broken with {@link CancellationException} if the scope
+     * is canceled, and is completed only after every child has settled.
+     * </p>
+     *
+     * @param body
+     *            task. Must not be null.
+     *
+     * @return promise of the body's value.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     *
+     * @throws IllegalStateException
+     *             if the scope has already run a body.
+     */
+    public <T> Promise<T> run(final SupplierT<? extends Promise<T>> body) {
+
+        Objects.requireNonNull(body);
+        if (!this.phase.compareAndSet(IDLE, RAN)) {
+            if (this.phase.get() == RAN) {
+                throw new IllegalStateException("scope has already run");
+            }
+            @SuppressWarnings("unchecked")
+            final Promise<T> rval = (Promise<T>) this.result;
+            return rval;
+        }
+
+        Promise<T> p;
+        try {
+            p = Objects.requireNonNull(body.get());
+        } catch (final Throwable t) {
+            p = Promises.broken(t);
+        }
+
+        p.dispatch((v, x) -> {
+            this.value = v;
+            this.error = x;
+            if (x != null) {
+                this.failed = true;
+                revokeAll();
+            }
+            settle();
+        });
+
+        @SuppressWarnings("unchecked")
+        final Promise<T> rval = (Promise<T>) this.result;
+        return rval;
+
+    }
+
+    /**
+     * Create a nested scope. This scope's result waits for the nested
+     * scope's result, which completes only once the nested scope is
+     * {@link #run(SupplierT) run} or canceled. If this scope is already
+     * canceled or its body has failed, the nested scope is canceled at once.
+     *
+     * @return new scope.
+     *
+     * @throws IllegalStateException
+     *             if this scope's result is already complete.
+     */
+    public PromiseScope scope() {
+
+        enter();
+        final PromiseScope rval = new PromiseScope();
+        this.nested.add(rval);
+        rval.result.dispatch((v, x) -> {
+            this.nested.remove(rval);
+            settle();
+        });
+        if (this.canceled || this.failed) {
+            rval.cancel();
+        }
+        return rval;
+
+    }
+
+    private void enter() {
+
+        int n;
+        do {
+            n = this.pending.get();
+            if (n == 0) {
+                throw new IllegalStateException("scope is complete");
+            }
+        } while (!this.pending.compareAndSet(n, n + 1));
+
+    }
+
+    private void revokeAll() {
+
+        this.children.forEach(Async::revoke);
+        this.nested.forEach(PromiseScope::cancel);
+
+    }
+
+    private void settle() {
+
+        if (this.pending.decrementAndGet() != 0) {
+            return;
+        }
+        if (this.canceled) {
+            this.result.cancel();
+        } else if (this.error != null) {
+            this.result.fail(this.error);
+        } else {
+            this.result.succeed(this.value);
+        }
+
+    }
+
+}
@@ -0,0 +1,282 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Default {@link PromiseMonitor}. Counts promises by lifecycle stage, tracks
+ * the deepest pending list seen, and records completion latency in a
+ * log-linear histogram in the manner of HdrHistogram: values are bucketed
+ * with a relative error of at most 1/16 across the full range of a
+ * {@code long}, in fixed memory, without locks or allocation.
+ * </p>
+ *
+ * <p>
+ * If constructed with a slow continuation threshold, it also counts slow
+ * continuations by the class of the offending function.
+ * </p>
+ *
+ * <p>
+ * Reads are not atomic across counters. Under concurrent updates a snapshot
+ * may be slightly inconsistent, for example showing a completion whose
+ * creation is not yet counted.
+ * </p>
+ */
+public final class PromiseStats implements PromiseMonitor {
+
+    /**
+     * sub-buckets per power of two, as a bit count.
+     */
+    private static final int SUB_BITS = 4;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final LongAdder bound = new LongAdder();
+
+    private final LongAdder broken = new LongAdder();
+
+    private final AtomicLongArray buckets = new AtomicLongArray(
+            (64 - SUB_BITS + 1) * SUB_COUNT);
+
+    private final LongAdder canceled = new LongAdder();
+
+    private final LongAdder created = new LongAdder();
+
+    private final LongAdder fulfilled = new LongAdder();
+
+    private final LongAccumulator maxPending = new LongAccumulator(Math::max,
+            0);
+
+    private final Map<Class<?>, LongAdder> slow = new ConcurrentHashMap<>();
+
+    private final long slowThreshold;
+
+    /**
+     * Create an instance that does not time continuations.
+     */
+    public PromiseStats() {
+        this.slowThreshold = -1;
+    }
+
+    /**
+     * Create an instance that counts slow continuations.
+     *
+     * @param threshold
+     *            continuation run time above which it is counted as slow.
+     *            Must not be negative.
+     *
+     * @param unit
+     *            threshold unit. Must not be null.
+     *
+     * @throws IllegalArgumentException
+     *             if threshold is negative.
+     */
+    public PromiseStats(final long threshold, final TimeUnit unit) {
+
+        if (threshold < 0) {
+            throw new IllegalArgumentException(
+                    "threshold must not be negative");
+        }
+        this.slowThreshold = unit.toNanos(threshold);
+
+    }
+
+    @Override
+    public void bound(final int pending) {
+
+        this.bound.increment();
+        this.maxPending.accumulate(pending);
+
+    }
+
+    /**
+     * @return number of continuations that had to wait for completion.
+     */
+    public long boundCount() {
+        return this.bound.sum();
+    }
+
+    /**
+     * @return number of monitored promises broken other than by
+     *         cancellation.
+     */
+    public long brokenCount() {
+        return this.broken.sum();
+    }
+
+    /**
+     * @return number of monitored promises canceled.
+     */
+    public long canceledCount() {
+        return this.canceled.sum();
+    }
+
+    @Override
+    public void completed(final Outcome outcome, final long nanos) {
+
+        switch (outcome) {
+        case FULFILLED:
+            this.fulfilled.increment();
+            break;
+        case CANCELED:
+            this.canceled.increment();
+            break;
+        default:
+            this.broken.increment();
+            break;
+        }
+        this.buckets.incrementAndGet(index(Math.max(0, nanos)));
+
+    }
+
+    @Override
+    public void created() {
+
+        this.created.increment();
+
+    }
+
+    /**
+     * @return number of promises created while monitored.
+     */
+    public long createdCount() {
+        return this.created.sum();
+    }
+
+    /**
+     * @return number of monitored promises fulfilled.
+     */
+    public long fulfilledCount() {
+        return this.fulfilled.sum();
+    }
+
+    /**
+     * Completion latency at a given quantile. The result is the lower bound
+     * of the bucket containing the quantile, within 1/16 of the true value.
+     *
+     * @param q
+     *            quantile, from 0 to 1 inclusive.
+     *
+     * @param unit
+     *            result unit. Must not be null.
+     *
+     * @return latency, or zero if nothing has completed.
+     *
+     * @throws IllegalArgumentException
+     *             if the quantile is out of range.
+     */
+    public long latency(final double q, final TimeUnit unit) {
+
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("quantile out of range: " + q);
+        }
+
+        final int n = this.buckets.length();
+        long total = 0;
+        for (int i = 0; i < n; i = i + 1) {
+            total = total + this.buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < n; i = i + 1) {
+            seen = seen + this.buckets.get(i);
+            if (seen >= rank) {
+                return unit.convert(lowest(i), TimeUnit.NANOSECONDS);
+            }
+        }
+        return unit.convert(lowest(n - 1), TimeUnit.NANOSECONDS);
+
+    }
+
+    /**
+     * @return most continuations seen waiting on a single promise at once.
+     */
+    public long maxPending() {
+        return this.maxPending.get();
+    }
+
+    /**
+     * @return number of monitored promises created but not yet complete.
+     */
+    public long outstanding() {
+        return this.created.sum()
+                - (this.fulfilled.sum() + this.broken.sum() + this.canceled
+                        .sum());
+    }
+
+    @Override
+    public void slow(final Stage stage, final Class<?> continuation,
+            final long nanos) {
+
+        this.slow.computeIfAbsent(continuation, k -> new LongAdder())
+                .increment();
+
+    }
+
+    /**
+     * @return number of slow continuations by class of the function passed
+     *         when each was bound.
+     */
+    public Map<Class<?>, Long> slowCounts() {
+
+        final Map<Class<?>, Long> rval = new HashMap<>();
+        this.slow.forEach((k, v) -> rval.put(k, v.sum()));
+        return Collections.unmodifiableMap(rval);
+
+    }
+
+    @Override
+    public long slowThreshold() {
+        return this.slowThreshold;
+    }
+
+    private static int index(final long v) {
+
+        final int magnitude = 63 - Long.numberOfLeadingZeros(v);
+        if (magnitude < SUB_BITS) {
+            return (int) v;
+        }
+        final int shift = magnitude - SUB_BITS;
+        return ((shift + 1) << SUB_BITS)
+                + (int) ((v >>> shift) & (SUB_COUNT - 1));
+
+    }
+
+    private static long lowest(final int index) {
+
+        final int shift = (index >>> SUB_BITS) - 1;
+        final long sub = index & (SUB_COUNT - 1);
+        if (shift < 0) {
+            return sub;
+        }
+        return (SUB_COUNT + sub) << shift;
+
+    }
+
+}
@@ -0,0 +1,504 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+
+import com.msiops.footing.functional.FunT1;
+
+/**
+ * <p>
+ * Pull-based asynchronous sequence. Each invocation of {@link #next()}
+ * promises the next element, or an empty value at the end of the sequence. A
+ * broken promise signals an error; what a stream does when pulled again after
+ * an error is up to the stream.
+ * </p>
+ *
+ * <p>
+ * A stream has a single consumer, who must not invoke {@link #next()} again
+ * until the previously returned promise is complete. The pace of the
+ * consumer is the pace of the producer unless the stream is
+ * {@link #buffer(int) buffered}.
+ * </p>
+ *
+ * <p>
+ * Operators that pull repeatedly to produce one result, such as
+ * {@link #filter(Predicate)} and {@link #collect(Collector)}, loop over
+ * elements that are already available rather than nesting continuations, so
+ * long synchronous sequences do not exhaust the stack.
+ * </p>
+ *
+ * @param <T>
+ *            element type.
+ */
+@FunctionalInterface
+public interface PromiseStream<T> {
+
+    /**
+     * @return stream with no elements.
+     */
+    public static <T> PromiseStream<T> empty() {
+        return () -> Promises.fulfilled(Optional.empty());
+    }
+
+    /**
+     * Stream the elements of an iterable in iteration order. The iterator is
+     * created on the first pull. A null element, or an error raised by the
+     * iterator, breaks the promise of that element.
+     *
+     * @param src
+     *            elements. Must not be null.
+     *
+     * @return stream of the elements.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    public static <T> PromiseStream<T> fromIterable(
+            final Iterable<? extends T> src) {
+
+        Objects.requireNonNull(src);
+
+        final AtomicReference<Iterator<? extends T>> it = new AtomicReference<>();
+        return () -> {
+            try {
+                if (it.get() == null) {
+                    it.set(src.iterator());
+                }
+                final Optional<T> rval = it.get().hasNext() ? Optional
+                        .of(it.get().next()) : Optional.empty();
+                return Promises.fulfilled(rval);
+            } catch (final Throwable t) {
+                return Promises.broken(t);
+            }
+        };
+
+    }
+
+    /**
+     * Stream fixed values.
+     *
+     * @param values
+     *            elements. Must not be null.
+     *
+     * @return stream of the elements.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    @SafeVarargs
+    public static <T> PromiseStream<T> of(final T... values) {
+        final List<T> l = new ArrayList<>(values.length);
+        for (final T v : values) {
+            l.add(v);
+        }
+        return fromIterable(l);
+    }
+
+    /**
+     * <p>
+     * Group elements into lists for bulk processing. A list is emitted when
+     * it reaches the maximum size, when the maximum delay has passed since
+     * its first element arrived, or at the end of this stream. Lists are
+     * never empty. The delay is measured on a shared timer thread, from which
+     * a list may be emitted.
+     * </p>
+     *
+     * <p>
+     * This stream is pulled only while the consumer waits. An error is
+     * delivered after the list of elements received before it.
+     * </p>
+     *
+     * @param maxSize
+     *            most elements in a list. Must be positive.
+     *
+     * @param maxDelay
+     *            longest the first element of a list waits for others. Must
+     *            be positive.
+     *
+     * @param unit
+     *            delay unit. Must not be null.
+     *
+     * @return stream of lists.
+     *
+     * @throws IllegalArgumentException
+     *             if size or delay is not positive.
+     *
+     * @throws NullPointerException
+     *             if the unit is null.
+     */
+    default PromiseStream<List<T>> batch(final int maxSize,
+            final long maxDelay, final TimeUnit unit) {
+
+        Objects.requireNonNull(unit);
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        if (maxDelay <= 0) {
+            throw new IllegalArgumentException("delay must be positive");
+        }
+
+        return new Batcher<>(this, maxSize, maxDelay, unit, false);
+
+    }
+
+    /**
+     * <p>
+     * Prefetch elements. The returned stream pulls up to the given number of
+     * elements from this stream ahead of its consumer, so this stream
+     * produces while the consumer works. Pulls from this stream remain
+     * sequential.
+     * </p>
+     *
+     * <p>
+     * Prefetching stops at the end of this stream or at its first error.
+     * Elements are delivered in order, the error included; the returned
+     * stream ends after it.
+     * </p>
+     *
+     * @param size
+     *            maximum number of elements pulled ahead. Must be positive.
+     *
+     * @return prefetching stream.
+     *
+     * @throws IllegalArgumentException
+     *             if size is not positive.
+     */
+    default PromiseStream<T> buffer(final int size) {
+
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+
+        return new Prefetch<>(this, size);
+
+    }
+
+    /**
+     * Pull every element and reduce them with a collector. The collector's
+     * accumulator is invoked sequentially, never concurrently.
+     *
+     * @param collector
+     *            reduction. Must not be null.
+     *
+     * @return promise of the reduction, broken if the stream, the collector
+     *         or its result is in error.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    default <A, R> Promise<R> collect(
+            final Collector<? super T, A, R> collector) {
+
+        Objects.requireNonNull(collector);
+
+        final A container;
+        final BiConsumer<A, ? super T> acc;
+        try {
+            container = collector.supplier().get();
+            acc = collector.accumulator();
+        } catch (final Throwable t) {
+            return Promises.broken(t);
+        }
+
+        return Loop.whileTrue(() -> next().map(o -> {
+            o.ifPresent(v -> acc.accept(container, v));
+            return o.isPresent();
+        })).map(n -> Objects.requireNonNull(collector.finisher().apply(
+                container)));
+
+    }
+
+    /**
+     * Keep the elements that satisfy a predicate. Rejected elements are
+     * pulled past without further promises.
+     *
+     * @param pred
+     *            predicate. Must not be null.
+     *
+     * @return filtered stream.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    default PromiseStream<T> filter(final Predicate<? super T> pred) {
+
+        Objects.requireNonNull(pred);
+
+        return () -> {
+            final AtomicReference<Optional<T>> found = new AtomicReference<>();
+            return Loop.whileTrue(() -> next().map(o -> {
+                if (!o.isPresent() || pred.test(o.get())) {
+                    found.set(o);
+                    return false;
+                }
+                return true;
+            })).map(n -> found.get());
+        };
+
+    }
+
+    /**
+     * Replace each element by the elements of a stream derived from it, in
+     * order. An inner stream is pulled to its end before the next element of
+     * this stream is pulled.
+     *
+     * @param f
+     *            inner stream function. Must not be null.
+     *
+     * @return concatenated stream.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    default <R> PromiseStream<R> flatMap(
+            final FunT1<? super T, ? extends PromiseStream<? extends R>> f) {
+
+        Objects.requireNonNull(f);
+
+        final AtomicReference<PromiseStream<? extends R>> inner = new AtomicReference<>();
+        return () -> {
+            final AtomicReference<Optional<R>> found = new AtomicReference<>();
+            return Loop.whileTrue(() -> {
+                final PromiseStream<? extends R> cur = inner.get();
+                if (cur != null) {
+                    return cur.next().map(o -> {
+                        if (o.isPresent()) {
+                            found.set(Optional.of(o.get()));
+                            return false;
+                        }
+                        inner.set(null);
+                        return true;
+                    });
+                }
+                return next().then(o -> {
+                    if (o.isPresent()) {
+                        inner.set(Objects.requireNonNull(f.apply(o.get())));
+                        return Promises.fulfilled(true);
+                    }
+                    found.set(Optional.empty());
+                    return Promises.fulfilled(false);
+                });
+            }).map(n -> found.get());
+        };
+
+    }
+
+    /**
+     * Transform each element.
+     *
+     * @param f
+     *            transformation. Must not be null and must not produce null.
+     *
+     * @return transformed stream.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     */
+    default <R> PromiseStream<R> map(final Function<? super T, ? extends R> f) {
+
+        Objects.requireNonNull(f);
+
+        return () -> next().map(
+                o -> o.isPresent() ? Optional.of(f.apply(o.get())) : Optional
+                        .empty());
+
+    }
+
+    /**
+     * <p>
+     * Transform each element asynchronously, with up to a given number of
+     * transformations running at once. Results are delivered in source
+     * order. A slow element holds back the results after it, but no more
+     * than the parallelism in elements are held, so it stalls the stream
+     * only once that many have been pulled past it.
+     * </p>
+     *
+     * <p>
+     * This stream is pulled ahead of the consumer, one pull at a time. A
+     * broken transformation is delivered in its element's place. An error in
+     * this stream is delivered after the results of the elements before it
+     * and ends the returned stream.
+     * </p>
+     *
+     * @param parallelism
+     *            most elements held at once. Must be positive.
+     *
+     * @param f
+     *            transformation. Must not be null.
+     *
+     * @return transformed stream.
+     *
+     * @throws IllegalArgumentException
+     *             if parallelism is not positive.
+     *
+     * @throws NullPointerException
+     *             if the function is null.
+     */
+    default <R> PromiseStream<R> mapAsyncOrdered(final int parallelism,
+            final FunT1<? super T, ? extends Promise<? extends R>> f) {
+
+        Objects.requireNonNull(f);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "parallelism must be positive");
+        }
+
+        return new ParallelMap<>(this, parallelism, f, true);
+
+    }
+
+    /**
+     * Transform each element asynchronously, with up to a given number of
+     * transformations running at once. Results are delivered as they
+     * complete, so a slow element holds back nothing but itself. Otherwise
+     * like {@link #mapAsyncOrdered(int, FunT1)}, except that an error in this
+     * stream is delivered as soon as it occurs, possibly ahead of results
+     * still running.
+     *
+     * @param parallelism
+     *            most elements held at once. Must be positive.
+     *
+     * @param f
+     *            transformation. Must not be null.
+     *
+     * @return transformed stream.
+     *
+     * @throws IllegalArgumentException
+     *             if parallelism is not positive.
+     *
+     * @throws NullPointerException
+     *             if the function is null.
+     */
+    default <R> PromiseStream<R> mapAsyncUnordered(final int parallelism,
+            final FunT1<? super T, ? extends Promise<? extends R>> f) {
+
+        Objects.requireNonNull(f);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "parallelism must be positive");
+        }
+
+        return new ParallelMap<>(this, parallelism, f, false);
+
+    }
+
+    /**
+     * Pull the next element.
+     *
+     * @return promise of the next element, or empty at the end of the stream.
+     */
+    Promise<Optional<T>> next();
+
+    /**
+     * Limit the stream to a number of leading elements. This stream is not
+     * pulled once the limit is reached.
+     *
+     * @param n
+     *            maximum number of elements. Must not be negative.
+     *
+     * @return truncated stream.
+     *
+     * @throws IllegalArgumentException
+     *             if n is negative.
+     */
+    default PromiseStream<T> take(final long n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative");
+        }
+
+        final AtomicLong remaining = new AtomicLong(n);
+        return () -> {
+            if (remaining.get() <= 0) {
+                return Promises.fulfilled(Optional.empty());
+            }
+            return next().map(o -> {
+                remaining.decrementAndGet();
+                return o;
+            });
+        };
+
+    }
+
+    /**
+     * Group elements into lists of a fixed size. The last list holds the
+     * remaining elements and may be shorter. An error is delivered after the
+     * list of elements received before it.
+     *
+     * @param n
+     *            elements in a list. Must be positive.
+     *
+     * @return stream of lists.
+     *
+     * @throws IllegalArgumentException
+     *             if n is not positive.
+     */
+    default PromiseStream<List<T>> window(final int n) {
+
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+
+        return new Batcher<>(this, n, 0, TimeUnit.NANOSECONDS, false);
+
+    }
+
+    /**
+     * Group elements into lists by period. A period opens when the consumer
+     * pulls, and its list holds the elements that arrive before it closes. A
+     * period in which nothing arrives is followed by another rather than
+     * emitting an empty list. Periods are measured on a shared timer thread,
+     * from which a list may be emitted.
+     *
+     * @param period
+     *            length of a period. Must be positive.
+     *
+     * @param unit
+     *            period unit. Must not be null.
+     *
+     * @return stream of lists.
+     *
+     * @throws IllegalArgumentException
+     *             if the period is not positive.
+     *
+     * @throws NullPointerException
+     *             if the unit is null.
+     */
+    default PromiseStream<List<T>> windowTime(final long period,
+            final TimeUnit unit) {
+
+        Objects.requireNonNull(unit);
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+
+        return new Batcher<>(this, Integer.MAX_VALUE, period, unit, true);
+
+    }
+
+}
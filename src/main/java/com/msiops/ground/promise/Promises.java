@@ -19,11 +19,19 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 
+import org.reactivestreams.Publisher;
+
 import com.msiops.footing.functional.FunT1;
+import com.msiops.footing.functional.SupplierT;
 import com.msiops.footing.tuple.Pair;
 import com.msiops.footing.tuple.Triplet;
 import com.msiops.footing.tuple.Tuple;
@@ -37,6 +45,27 @@ public interface Promises {
         return new Async<T>();
     }
 
+    /**
+     * Create an async instance whose promise is under a deadline. Promises
+     * derived from it inherit the deadline.
+     *
+     * @param <T>
+     *            promised value type.
+     *
+     * @param deadline
+     *            deadline. Must not be null.
+     *
+     * @return created instance.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     *
+     * @see Deadline
+     */
+    public static <T> Async<T> async(final Deadline deadline) {
+        return new Async<T>(Objects.requireNonNull(deadline));
+    }
+
     /**
      * Create a broken promise. A broken promise is in its final state.
      *
@@ -60,6 +89,42 @@ public interface Promises {
 
     }
 
+    /**
+     * Limit concurrent invocations of promise suppliers. The returned
+     * function invokes a supplier only while fewer than a maximum number of
+     * previously supplied promises are incomplete. Excess invocations wait
+     * their turn, up to a bound. Beyond that they are refused with a promise
+     * broken by {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @param <T>
+     *            promised value type.
+     *
+     * @param maxConcurrent
+     *            most supplied promises incomplete at once. Must be positive.
+     *
+     * @param maxQueued
+     *            most invocations waiting their turn. Must not be negative.
+     *
+     * @return bulkhead function. Its argument must not be null.
+     *
+     * @throws IllegalArgumentException
+     *             if either bound is out of range.
+     *
+     * @see AsyncSemaphore
+     */
+    public static <T> Function<SupplierT<? extends Promise<T>>, Promise<T>> bulkhead(
+            final int maxConcurrent, final int maxQueued) {
+
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException(
+                    "maximum concurrency must be positive");
+        }
+
+        final AsyncSemaphore s = new AsyncSemaphore(maxConcurrent, maxQueued);
+        return s::call;
+
+    }
+
     public static <R> Promise<R> canceled() {
 
         final Promise<R> rval = new Promise<>();
@@ -68,6 +133,114 @@ public interface Promises {
 
     }
 
+    /**
+     * <p>
+     * Create a promise from the first element of a reactive streams
+     * publisher. The publisher is subscribed immediately and asked for exactly
+     * one element. When it arrives, the subscription is canceled and the
+     * returned promise is fulfilled with it.
+     * </p>
+     *
+     * <p>
+     * If the publisher signals an error before the first element, the
+     * returned promise is broken with that error. If the publisher completes
+     * without an element, the returned promise is broken with a
+     * {@link java.util.NoSuchElementException}.
+     * </p>
+     *
+     * @param <T>
+     *            element type.
+     *
+     * @param pub
+     *            publisher. Must not be null.
+     *
+     * @return promise of the first published element.
+     *
+     * @throws NullPointerException
+     *             if argument is null.
+     */
+    public static <T> Promise<T> fromPublisher(final Publisher<? extends T> pub) {
+
+        final SubscriberAdapter<T> sub = new SubscriberAdapter<>();
+        pub.subscribe(sub);
+        return sub.promise();
+
+    }
+
+    /**
+     * Create a promise from a completion stage. This is the natural way to
+     * consume APIs that return {@link java.util.concurrent.CompletableFuture},
+     * such as an HTTP client's asynchronous send, without blocking a thread.
+     * See {@link Async#adopt(CompletionStage)} for completion details.
+     *
+     * @param <T>
+     *            value type.
+     *
+     * @param stage
+     *            stage to adopt. Must not be null.
+     *
+     * @return promise completed when the stage completes.
+     *
+     * @throws NullPointerException
+     *             if argument is null.
+     */
+    public static <T> Promise<T> fromStage(
+            final CompletionStage<? extends T> stage) {
+
+        final Async<T> rval = async();
+        rval.adopt(stage);
+        return rval.promise();
+
+    }
+
+    /**
+     * Create a promise from a completion stage with a time limit. If the
+     * stage does not complete within the limit, the returned promise is broken
+     * with {@link TimeoutException} and, if the stage is a {@link Future}, the
+     * stage is canceled. The timer runs on a single shared thread and is
+     * discarded as soon as the stage completes.
+     *
+     * @param <T>
+     *            value type.
+     *
+     * @param stage
+     *            stage to adopt. Must not be null.
+     *
+     * @param timeout
+     *            time limit.
+     *
+     * @param unit
+     *            time limit unit. Must not be null.
+     *
+     * @return promise completed when the stage completes or the time limit
+     *         passes.
+     *
+     * @throws NullPointerException
+     *             if any reference argument is null.
+     */
+    public static <T> Promise<T> fromStage(
+            final CompletionStage<? extends T> stage, final long timeout,
+            final TimeUnit unit) {
+
+        final Async<T> rval = async();
+        rval.adopt(stage);
+
+        final ScheduledFuture<?> timer = SharedTimer.schedule(
+                () -> rval.tryFail(new TimeoutException()), timeout, unit);
+        rval.promise().emit(any -> timer.cancel(false));
+        /*
+         * bound here so the stage is canceled before anything downstream
+         * sees the timeout.
+         */
+        if (stage instanceof Future) {
+            rval.promise().on(TimeoutException.class,
+                    x -> ((Future<?>) stage).cancel(true));
+        }
+
+        return rval.promise();
+
+    }
+
     /**
      * Create a fulfilled promise. A fulfilled promise is in its final state.
      *
@@ -172,6 +345,23 @@ public interface Promises {
 
     }
 
+    /**
+     * Install a process-wide {@link PromiseMonitor}, replacing any installed
+     * previously. Promises created afterward report their lifecycle to it.
+     *
+     * @param m
+     *            monitor to install, or null to stop monitoring.
+     *
+     * @return previously installed monitor, or null if there was none.
+     */
+    public static PromiseMonitor monitor(final PromiseMonitor m) {
+
+        final PromiseMonitor rval = Promise.monitor;
+        Promise.monitor = m;
+        return rval;
+
+    }
+
     public static <R> Promise<R> of(
             final Either<? extends R, ? extends Throwable> e) {
 
@@ -181,6 +371,88 @@ public interface Promises {
 
     }
 
+    /**
+     * Install a process-wide {@link ContextPropagator}, replacing any
+     * installed previously. Continuations bound afterward run within the
+     * context current when they were bound.
+     *
+     * @param cp
+     *            propagator to install, or null to stop propagating.
+     *
+     * @return previously installed propagator, or null if there was none.
+     */
+    public static ContextPropagator propagate(final ContextPropagator cp) {
+
+        final ContextPropagator rval = Promise.propagator;
+        Promise.propagator = cp;
+        return rval;
+
+    }
+
+    /**
+     * Coalesce concurrent invocations of a promise function. The returned
+     * function shares one in-flight promise among callers passing equal
+     * arguments, invoking the original only when no promise for the argument
+     * is in flight.
+     *
+     * @param <K>
+     *            argument type.
+     *
+     * @param <V>
+     *            promised value type.
+     *
+     * @param loader
+     *            promise function to coalesce. Must not be null.
+     *
+     * @return coalescing function. Its argument must not be null.
+     *
+     * @throws NullPointerException
+     *             if the argument is null.
+     *
+     * @see PromiseCache
+     */
+    public static <K, V> Function<K, Promise<V>> singleflight(
+            final FunT1<? super K, ? extends Promise<V>> loader) {
+
+        Objects.requireNonNull(loader);
+
+        final PromiseCache<K, V> cache = new PromiseCache<>();
+        return k -> cache.get(k, () -> loader.apply(k));
+
+    }
+
+    /**
+     * <p>
+     * Trace the assembly of promise chains. When tracing, a sample of
+     * {@link Promise#then(FunT1) then} and {@link Promise#map(Function) map}
+     * registrations record their call site. If the promise produced by a
+     * traced registration is broken, the call site is added to the error as a
+     * suppressed exception, so an error that crosses several traced stages
+     * shows the path it took.
+     * </p>
+     *
+     * <p>
+     * Recording a call site is costly, so sample sparingly in production.
+     * When not tracing, the cost to each registration is a single branch.
+     * </p>
+     *
+     * @param interval
+     *            sampling interval. One in this many registrations, on
+     *            average, is traced. Use 1 to trace every registration or 0 to
+     *            stop tracing. Must not be negative.
+     *
+     * @throws IllegalArgumentException
+     *             if the interval is negative.
+     */
+    public static void traceAssembly(final int interval) {
+
+        if (interval < 0) {
+            throw new IllegalArgumentException("negative interval");
+        }
+        Promise.traceInterval = interval;
+
+    }
+
     /**
      * Unite a list of promises. This takes a list of promises and unites them
      * under a single promise to return a list of values.
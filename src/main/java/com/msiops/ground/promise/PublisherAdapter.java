@@ -0,0 +1,149 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Present a promise as a publisher of at most one element. Each subscriber
+ * gets its own subscription. The value is never copied out of the promise
+ * until the subscriber has signaled demand.
+ *
+ * @param <T>
+ *            promised value type.
+ */
+final class PublisherAdapter<T> implements Publisher<T> {
+
+    private final Promise<T> p;
+
+    PublisherAdapter(final Promise<T> p) {
+        this.p = p;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super T> s) {
+
+        Objects.requireNonNull(s);
+
+        final Sub<T> sub = new Sub<>(s);
+        s.onSubscribe(sub);
+        this.p.dispatch(sub);
+
+    }
+
+    private static final class Sub<T> implements Subscription, Link<T> {
+
+        private static final int DEMAND = 1;
+
+        private static final int DONE = 4;
+
+        private static final int VALUE = 2;
+
+        private final AtomicInteger state = new AtomicInteger();
+
+        private final Subscriber<? super T> sub;
+
+        private T value = null;
+
+        Sub(final Subscriber<? super T> sub) {
+            this.sub = sub;
+        }
+
+        @Override
+        public void cancel() {
+
+            this.state.getAndUpdate(s -> s | DONE);
+            this.value = null;
+
+        }
+
+        @Override
+        public void next(final T value, final Throwable x) {
+
+            if (x != null) {
+                if (terminate()) {
+                    signal(() -> this.sub.onError(x));
+                }
+                return;
+            }
+
+            this.value = value;
+            final int prev = this.state.getAndUpdate(s -> s | VALUE);
+            if ((prev & DEMAND) != 0) {
+                emit();
+            }
+
+        }
+
+        @Override
+        public void request(final long n) {
+
+            if (n <= 0) {
+                if (terminate()) {
+                    /*
+                     * rule 3.9
+                     */
+                    signal(() -> this.sub
+                            .onError(new IllegalArgumentException(
+                                    "non-positive request: " + n)));
+                }
+                return;
+            }
+
+            final int prev = this.state.getAndUpdate(s -> s | DEMAND);
+            if ((prev & (DEMAND | VALUE)) == VALUE) {
+                emit();
+            }
+
+        }
+
+        private void emit() {
+
+            final T v = this.value;
+            if (terminate()) {
+                this.value = null;
+                signal(() -> {
+                    this.sub.onNext(v);
+                    this.sub.onComplete();
+                });
+            }
+
+        }
+
+        private void signal(final Runnable r) {
+            try {
+                r.run();
+            } catch (final Throwable err) {
+                /*
+                 * subscriber is not allowed to throw (rule 2.13) so silently
+                 * ignore the same as any other terminal continuation.
+                 */
+            }
+        }
+
+        private boolean terminate() {
+            final int prev = this.state.getAndUpdate(s -> s | DONE);
+            return (prev & DONE) == 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,229 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Token bucket rate limiter that promises permits rather than sleeping for
+ * them. Permits are issued at a steady rate, and up to a burst of unused
+ * permits may accumulate. A request that cannot be served from the bucket
+ * reserves its place in line and is fulfilled when its permits have been
+ * issued.
+ * </p>
+ *
+ * <p>
+ * No thread waits. Reservations are taken lock-free and waiting requests are
+ * fulfilled in order by a single entry on a shared timer, however many are
+ * waiting, so fulfillment happens on the timer thread. Continuations of the
+ * returned promises should hand off any substantial work.
+ * </p>
+ */
+public final class RateLimiter {
+
+    private static final class Waiter {
+
+        private final Async<Integer> a = new Async<>();
+
+        private final int n;
+
+        Waiter(final int n) {
+            this.n = n;
+        }
+
+    }
+
+    private final AtomicLong armedFor = new AtomicLong(Long.MAX_VALUE);
+
+    private final long capacity;
+
+    private final long interval;
+
+    /**
+     * theoretical arrival time: when the bucket would next be empty if no
+     * more permits were requested.
+     */
+    private final AtomicLong tat;
+
+    /**
+     * waiting requests keyed by due time. Reservation times only increase,
+     * so keys are unique.
+     */
+    private final ConcurrentNavigableMap<Long, Waiter> waiters = new ConcurrentSkipListMap<>();
+
+    /**
+     * Create a limiter.
+     *
+     * @param permits
+     *            permits issued per period. Must be positive.
+     *
+     * @param period
+     *            period. Must be positive and, in nanoseconds, at least the
+     *            number of permits.
+     *
+     * @param unit
+     *            period unit. Must not be null.
+     *
+     * @param burst
+     *            most permits that can accumulate unused. Must be positive.
+     *
+     * @throws IllegalArgumentException
+     *             if any number is out of range.
+     *
+     * @throws NullPointerException
+     *             if the unit is null.
+     */
+    public RateLimiter(final long permits, final long period,
+            final TimeUnit unit, final int burst) {
+
+        if (permits <= 0 || period <= 0 || burst <= 0) {
+            throw new IllegalArgumentException(
+                    "permits, period and burst must be positive");
+        }
+        this.interval = unit.toNanos(period) / permits;
+        if (this.interval <= 0) {
+            throw new IllegalArgumentException("rate too high");
+        }
+
+        this.capacity = burst * this.interval;
+        this.tat = new AtomicLong(System.nanoTime());
+
+    }
+
+    /**
+     * Acquire permits.
+     *
+     * @param n
+     *            number of permits. Must be positive.
+     *
+     * @return promise of the number of permits, fulfilled when they are
+     *         issued; immediately if the bucket holds enough.
+     *
+     * @throws IllegalArgumentException
+     *             if the number is not positive.
+     */
+    public Promise<Integer> acquire(final int n) {
+
+        if (n <= 0) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+
+        final long cost = n * this.interval;
+        long now;
+        long prev;
+        long next;
+        do {
+            now = System.nanoTime();
+            prev = this.tat.get();
+            next = Math.max(prev, now) + cost;
+        } while (!this.tat.compareAndSet(prev, next));
+
+        final long due = next - this.capacity;
+        if (due - now <= 0) {
+            return Promises.fulfilled(n);
+        }
+
+        final Waiter w = new Waiter(n);
+        this.waiters.put(due, w);
+        arm(due);
+        return w.a.promise();
+
+    }
+
+    /**
+     * Acquire permits only if the bucket holds enough now.
+     *
+     * @param n
+     *            number of permits. Must be positive.
+     *
+     * @return true if the permits were acquired.
+     *
+     * @throws IllegalArgumentException
+     *             if the number is not positive.
+     */
+    public boolean tryAcquire(final int n) {
+
+        if (n <= 0) {
+            throw new IllegalArgumentException("permits must be positive");
+        }
+
+        final long cost = n * this.interval;
+        while (true) {
+            final long now = System.nanoTime();
+            final long prev = this.tat.get();
+            final long next = Math.max(prev, now) + cost;
+            if (next - this.capacity - now > 0) {
+                return false;
+            }
+            if (this.tat.compareAndSet(prev, next)) {
+                return true;
+            }
+        }
+
+    }
+
+    /**
+     * @return number of requests waiting for permits.
+     */
+    public int waiting() {
+        return this.waiters.size();
+    }
+
+    /**
+     * Make sure the timer will drain by the given due time. At most one entry
+     * is normally outstanding.
+     */
+    private void arm(final long due) {
+
+        while (true) {
+            final long cur = this.armedFor.get();
+            if (cur <= due) {
+                return;
+            }
+            if (this.armedFor.compareAndSet(cur, due)) {
+                SharedTimer.schedule(this::drain, due - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+                return;
+            }
+        }
+
+    }
+
+    private void drain() {
+
+        this.armedFor.set(Long.MAX_VALUE);
+
+        final long now = System.nanoTime();
+        for (Map.Entry<Long, Waiter> e = this.waiters.firstEntry(); e != null
+                && e.getKey() - now <= 0; e = this.waiters.firstEntry()) {
+            if (this.waiters.remove(e.getKey(), e.getValue())) {
+                e.getValue().a.succeed(e.getValue().n);
+            }
+        }
+
+        final Map.Entry<Long, Waiter> head = this.waiters.firstEntry();
+        if (head != null) {
+            arm(head.getKey());
+        }
+
+    }
+
+}
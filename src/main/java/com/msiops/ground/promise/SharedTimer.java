@@ -0,0 +1,58 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single daemon timer thread shared by every time-based operation in this
+ * package. Scheduled tasks must be short and must not block; typically they
+ * only complete a promise.
+ */
+final class SharedTimer {
+
+    private static final ScheduledThreadPoolExecutor EXEC;
+
+    static {
+        EXEC = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread t = new Thread(r, "promise-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        /*
+         * most timers are canceled before they fire. don't let them pile up
+         * in the queue.
+         */
+        EXEC.setRemoveOnCancelPolicy(true);
+    }
+
+    static ScheduledFuture<?> repeat(final Runnable task, final long period,
+            final TimeUnit unit) {
+        return EXEC.scheduleWithFixedDelay(task, period, period, unit);
+    }
+
+    static ScheduledFuture<?> schedule(final Runnable task, final long delay,
+            final TimeUnit unit) {
+        return EXEC.schedule(task, delay, unit);
+    }
+
+    private SharedTimer() {
+
+    }
+
+}
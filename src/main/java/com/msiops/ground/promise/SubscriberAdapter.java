@@ -0,0 +1,95 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Complete a promise from the first element of a publisher. Exactly one
+ * element is requested and the subscription is canceled as soon as it
+ * arrives.
+ *
+ * @param <T>
+ *            element type.
+ */
+final class SubscriberAdapter<T> implements Subscriber<T> {
+
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private final Promise<T> p = new Promise<>();
+
+    private Subscription subscription = null;
+
+    @Override
+    public void onComplete() {
+
+        if (this.completed.compareAndSet(false, true)) {
+            this.p.fail(new NoSuchElementException(
+                    "publisher completed without an element"));
+        }
+
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+
+        Objects.requireNonNull(t);
+
+        if (this.completed.compareAndSet(false, true)) {
+            this.p.fail(t);
+        }
+
+    }
+
+    @Override
+    public void onNext(final T t) {
+
+        Objects.requireNonNull(t);
+
+        if (this.completed.compareAndSet(false, true)) {
+            this.subscription.cancel();
+            this.p.succeed(t);
+        }
+
+    }
+
+    @Override
+    public void onSubscribe(final Subscription s) {
+
+        Objects.requireNonNull(s);
+
+        if (this.subscription != null) {
+            /*
+             * rule 2.5
+             */
+            s.cancel();
+            return;
+        }
+        this.subscription = s;
+        s.request(1);
+
+    }
+
+    Promise<T> promise() {
+        return this.p;
+    }
+
+}
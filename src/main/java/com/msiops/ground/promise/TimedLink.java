@@ -0,0 +1,108 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise;
+
+/**
+ * <p>
+ * Time a continuation and report it to the monitor if it is slow. Timing is
+ * exclusive: a continuation that completes a downstream promise runs the
+ * downstream continuations on the same thread, and their time is not charged
+ * to it.
+ * </p>
+ *
+ * <p>
+ * Only used while a monitor that wants slow continuation reports is
+ * installed.
+ * </p>
+ *
+ * @param <T>
+ */
+final class TimedLink<T> implements Link<T> {
+
+    /**
+     * time spent in timed continuations nested inside the one currently
+     * running on this thread.
+     */
+    private static final ThreadLocal<long[]> NESTED = ThreadLocal
+            .withInitial(() -> new long[1]);
+
+    static <T> Link<T> wrap(final Link<T> link,
+            final PromiseMonitor.Stage stage, final Object fn,
+            final PromiseMonitor m) {
+
+        final long threshold;
+        try {
+            threshold = m.slowThreshold();
+        } catch (final Throwable err) {
+            return link;
+        }
+        if (threshold < 0) {
+            return link;
+        }
+        return new TimedLink<>(link, stage, fn.getClass(), threshold, m);
+
+    }
+
+    private final Class<?> continuation;
+
+    private final Link<T> link;
+
+    private final PromiseMonitor m;
+
+    private final PromiseMonitor.Stage stage;
+
+    private final long threshold;
+
+    private TimedLink(final Link<T> link, final PromiseMonitor.Stage stage,
+            final Class<?> continuation, final long threshold,
+            final PromiseMonitor m) {
+
+        this.link = link;
+        this.stage = stage;
+        this.continuation = continuation;
+        this.threshold = threshold;
+        this.m = m;
+
+    }
+
+    @Override
+    public void next(final T value, final Throwable x) {
+
+        final long[] nested = NESTED.get();
+        final long outer = nested[0];
+        nested[0] = 0;
+
+        final long start = System.nanoTime();
+        try {
+            this.link.next(value, x);
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            final long own = elapsed - nested[0];
+            nested[0] = outer + elapsed;
+            if (own > this.threshold) {
+                try {
+                    this.m.slow(this.stage, this.continuation, own);
+                } catch (final Throwable err) {
+                    /*
+                     * monitor must not disturb the chain
+                     */
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,284 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.msiops.footing.functional.FunT1;
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+/**
+ * <p>
+ * Promise-returning operations on {@link AsynchronousFileChannel}. Every
+ * returned promise is completed directly from the channel's completion
+ * handler. No thread blocks waiting for I/O.
+ * </p>
+ *
+ * <p>
+ * An error raised by the channel when an operation is initiated (for
+ * example, reading from a channel not opened for reading) breaks the returned
+ * promise rather than being thrown.
+ * </p>
+ */
+public interface AsyncFiles {
+
+    /**
+     * Read a sequence of bytes from a channel at a given position. This is a
+     * single read; the buffer may not be filled.
+     *
+     * @param ch
+     *            channel to read. Must not be null.
+     *
+     * @param dst
+     *            destination buffer. Must not be null.
+     *
+     * @param position
+     *            file position at which to read.
+     *
+     * @return promise of the number of bytes read, possibly zero, or -1 if the
+     *         position is at or beyond end of file.
+     *
+     * @throws NullPointerException
+     *             if any reference argument is null.
+     */
+    public static Promise<Integer> read(final AsynchronousFileChannel ch,
+            final ByteBuffer dst, final long position) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(dst);
+
+        final Async<Integer> rval = Promises.async();
+        final CompletionHandler<Integer, Async<Integer>> h = Completion
+                .instance();
+        try {
+            ch.read(dst, position, rval, h);
+        } catch (final Throwable t) {
+            h.failed(t, rval);
+        }
+        return rval.promise();
+
+    }
+
+    /**
+     * <p>
+     * Read a whole file into pooled buffers. The file is read from the start
+     * to its size at the time of invocation. The promised buffers are flipped
+     * and in file order. Every buffer except possibly the last is full.
+     * </p>
+     *
+     * <p>
+     * The promised buffers belong to the caller, who should
+     * {@link BufferPool#release(ByteBuffer) release} them when done.
+     * </p>
+     *
+     * @param ch
+     *            channel to read. Must not be null.
+     *
+     * @param pool
+     *            buffer source. Must not be null.
+     *
+     * @return promise of the file content.
+     *
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public static Promise<List<ByteBuffer>> readAll(
+            final AsynchronousFileChannel ch, final BufferPool pool) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(pool);
+
+        final long size;
+        try {
+            size = ch.size();
+        } catch (final Throwable t) {
+            return Promises.broken(t);
+        }
+
+        final List<ByteBuffer> chunks = Collections
+                .synchronizedList(new ArrayList<>());
+        final Promise<Long> done = new ChunkReader(ch, 0, size, pool, b -> {
+            chunks.add(b);
+            return Promises.fulfilled(b);
+        }, true).start();
+        done.on(Throwable.class, x -> chunks.forEach(pool::release));
+        return done.map(n -> new ArrayList<>(chunks));
+
+    }
+
+    /**
+     * <p>
+     * Read a file in chunks. Reads proceed sequentially from the starting
+     * position, each filling one buffer from the pool. Each filled buffer is
+     * flipped and passed to the sink. The next read is not started until the
+     * promise produced by the sink is fulfilled, so the sink controls the
+     * pace.
+     * </p>
+     *
+     * <p>
+     * The buffer belongs to the sink only until the sink's promise completes.
+     * It is returned to the pool afterward and must not be used again.
+     * </p>
+     *
+     * <p>
+     * The returned promise is broken if a read fails, if the sink throws, or
+     * if a sink promise is broken. Reading stops at the first failure.
+     * </p>
+     *
+     * @param ch
+     *            channel to read. Must not be null.
+     *
+     * @param position
+     *            file position at which to start. Must not be negative.
+     *
+     * @param length
+     *            maximum number of bytes to read. Reading stops early at end
+     *            of file.
+     *
+     * @param pool
+     *            buffer source. Must not be null.
+     *
+     * @param sink
+     *            chunk consumer. Must not be null.
+     *
+     * @return promise of the number of bytes read.
+     *
+     * @throws NullPointerException
+     *             if any reference argument is null.
+     *
+     * @throws IllegalArgumentException
+     *             if position or length is negative.
+     */
+    public static Promise<Long> readChunks(final AsynchronousFileChannel ch,
+            final long position, final long length, final BufferPool pool,
+            final FunT1<? super ByteBuffer, ? extends Promise<?>> sink) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(pool);
+        Objects.requireNonNull(sink);
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException(
+                    "position and length must not be negative");
+        }
+
+        return new ChunkReader(ch, position, length, pool, sink, false)
+                .start();
+
+    }
+
+    /**
+     * Write a sequence of bytes to a channel at a given position. This is a
+     * single write; the buffer may not be drained.
+     *
+     * @param ch
+     *            channel to write. Must not be null.
+     *
+     * @param src
+     *            source buffer. Must not be null.
+     *
+     * @param position
+     *            file position at which to write.
+     *
+     * @return promise of the number of bytes written.
+     *
+     * @throws NullPointerException
+     *             if any reference argument is null.
+     */
+    public static Promise<Integer> write(final AsynchronousFileChannel ch,
+            final ByteBuffer src, final long position) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(src);
+
+        final Async<Integer> rval = Promises.async();
+        final CompletionHandler<Integer, Async<Integer>> h = Completion
+                .instance();
+        try {
+            ch.write(src, position, rval, h);
+        } catch (final Throwable t) {
+            h.failed(t, rval);
+        }
+        return rval.promise();
+
+    }
+
+    /**
+     * Write all remaining bytes of a buffer to a channel starting at a given
+     * position. Short writes are resumed until the buffer is drained.
+     *
+     * @param ch
+     *            channel to write. Must not be null.
+     *
+     * @param src
+     *            source buffer. Must not be null.
+     *
+     * @param position
+     *            file position at which to start writing.
+     *
+     * @return promise of the number of bytes written.
+     *
+     * @throws NullPointerException
+     *             if any reference argument is null.
+     */
+    public static Promise<Long> writeFully(final AsynchronousFileChannel ch,
+            final ByteBuffer src, final long position) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(src);
+
+        final Async<Long> rval = Promises.async();
+
+        final CompletionHandler<Integer, Long> h = new CompletionHandler<Integer, Long>() {
+
+            @Override
+            public void completed(final Integer n, final Long at) {
+                final long next = at + n;
+                if (!src.hasRemaining()) {
+                    rval.succeed(next - position);
+                    return;
+                }
+                try {
+                    ch.write(src, next, next, this);
+                } catch (final Throwable t) {
+                    failed(t, next);
+                }
+            }
+
+            @Override
+            public void failed(final Throwable x, final Long at) {
+                rval.fail(x);
+            }
+        };
+
+        try {
+            ch.write(src, position, position, h);
+        } catch (final Throwable t) {
+            h.failed(t, position);
+        }
+
+        return rval.promise();
+
+    }
+
+}
@@ -0,0 +1,451 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.msiops.footing.functional.FunT1;
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+/**
+ * <p>
+ * Promise-returning operations on {@link AsynchronousSocketChannel} and
+ * {@link AsynchronousServerSocketChannel}. Every returned promise is completed
+ * directly from the channel's completion handler. No thread blocks waiting for
+ * I/O.
+ * </p>
+ *
+ * <p>
+ * An error raised by the channel when an operation is initiated (for
+ * example, reading while another read is pending) breaks the returned promise
+ * rather than being thrown.
+ * </p>
+ */
+public interface AsyncSockets {
+
+    /**
+     * Accept a connection.
+     *
+     * @param server
+     *            bound server channel. Must not be null.
+     *
+     * @return promise of the accepted connection.
+     *
+     * @throws NullPointerException
+     *             if argument is null.
+     */
+    public static Promise<AsynchronousSocketChannel> accept(
+            final AsynchronousServerSocketChannel server) {
+
+        Objects.requireNonNull(server);
+
+        final Async<AsynchronousSocketChannel> rval = Promises.async();
+        final CompletionHandler<AsynchronousSocketChannel, Async<AsynchronousSocketChannel>> h = Completion
+                .instance();
+        try {
+            server.accept(rval, h);
+        } catch (final Throwable t) {
+            h.failed(t, rval);
+        }
+        return rval.promise();
+
+    }
+
+    /**
+     * Connect a channel.
+     *
+     * @param ch
+     *            unconnected channel. Must not be null.
+     *
+     * @param remote
+     *            address to connect to. Must not be null.
+     *
+     * @return promise of the argument channel, fulfilled when it is
+     *         connected.
+     *
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public static Promise<AsynchronousSocketChannel> connect(
+            final AsynchronousSocketChannel ch, final SocketAddress remote) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(remote);
+
+        final Async<AsynchronousSocketChannel> rval = Promises.async();
+        final CompletionHandler<Void, Async<AsynchronousSocketChannel>> h = new CompletionHandler<Void, Async<AsynchronousSocketChannel>>() {
+
+            @Override
+            public void completed(final Void result,
+                    final Async<AsynchronousSocketChannel> a) {
+                a.succeed(ch);
+            }
+
+            @Override
+            public void failed(final Throwable x,
+                    final Async<AsynchronousSocketChannel> a) {
+                a.fail(x);
+            }
+        };
+        try {
+            ch.connect(remote, rval, h);
+        } catch (final Throwable t) {
+            h.failed(t, rval);
+        }
+        return rval.promise();
+
+    }
+
+    /**
+     * Read a sequence of bytes. This is a single read; the buffer may not be
+     * filled.
+     *
+     * @param ch
+     *            connected channel. Must not be null.
+     *
+     * @param dst
+     *            destination buffer. Must not be null.
+     *
+     * @return promise of the number of bytes read, or -1 at end of stream.
+     *
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public static Promise<Integer> read(final AsynchronousSocketChannel ch,
+            final ByteBuffer dst) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(dst);
+
+        final Async<Integer> rval = Promises.async();
+        final CompletionHandler<Integer, Async<Integer>> h = Completion
+                .instance();
+        try {
+            ch.read(dst, rval, h);
+        } catch (final Throwable t) {
+            h.failed(t, rval);
+        }
+        return rval.promise();
+
+    }
+
+    /**
+     * Fill a buffer. Short reads are resumed until the buffer has no space
+     * remaining. The promise is broken with {@link EOFException} if the stream
+     * ends first.
+     *
+     * @param ch
+     *            connected channel. Must not be null.
+     *
+     * @param dst
+     *            destination buffer. Must not be null.
+     *
+     * @return promise of the argument buffer, fulfilled when it is full. The
+     *         buffer is not flipped.
+     *
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public static Promise<ByteBuffer> readFully(
+            final AsynchronousSocketChannel ch, final ByteBuffer dst) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(dst);
+
+        final Async<ByteBuffer> rval = Promises.async();
+
+        final CompletionHandler<Integer, ByteBuffer> h = new CompletionHandler<Integer, ByteBuffer>() {
+
+            @Override
+            public void completed(final Integer n, final ByteBuffer b) {
+                if (n < 0) {
+                    rval.fail(new EOFException(b.remaining()
+                            + " bytes short of full buffer"));
+                } else if (b.hasRemaining()) {
+                    try {
+                        ch.read(b, b, this);
+                    } catch (final Throwable t) {
+                        failed(t, b);
+                    }
+                } else {
+                    rval.succeed(b);
+                }
+            }
+
+            @Override
+            public void failed(final Throwable x, final ByteBuffer b) {
+                rval.fail(x);
+            }
+        };
+
+        if (!dst.hasRemaining()) {
+            rval.succeed(dst);
+        } else {
+            try {
+                ch.read(dst, dst, h);
+            } catch (final Throwable t) {
+                h.failed(t, dst);
+            }
+        }
+        return rval.promise();
+
+    }
+
+    /**
+     * Read an exact number of bytes into a pooled buffer. The buffer belongs
+     * to the caller, who should {@link BufferPool#release(ByteBuffer) release}
+     * it when done. If the read fails, the buffer is returned to the pool.
+     *
+     * @param ch
+     *            connected channel. Must not be null.
+     *
+     * @param n
+     *            number of bytes to read. Must not be negative or exceed the
+     *            pool's buffer size.
+     *
+     * @param pool
+     *            buffer source. Must not be null.
+     *
+     * @return promise of a flipped buffer holding exactly n bytes.
+     *
+     * @throws NullPointerException
+     *             if any reference argument is null.
+     *
+     * @throws IllegalArgumentException
+     *             if n is out of range.
+     */
+    public static Promise<ByteBuffer> readFully(
+            final AsynchronousSocketChannel ch, final int n,
+            final BufferPool pool) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(pool);
+        if (n < 0 || n > pool.bufferSize()) {
+            throw new IllegalArgumentException("length out of range: " + n);
+        }
+
+        final ByteBuffer b = pool.acquire();
+        ((Buffer) b).limit(n);
+        final Promise<ByteBuffer> rval = readFully(ch, b);
+        rval.on(Throwable.class, x -> pool.release(b));
+        return rval.map(full -> {
+            ((Buffer) full).flip();
+            return full;
+        });
+
+    }
+
+    /**
+     * <p>
+     * Run an accept loop. Each accepted connection is passed to a handler and
+     * the next connection is accepted immediately, without waiting for the
+     * handler. The connection is closed when the handler's promise completes,
+     * whether fulfilled or broken.
+     * </p>
+     *
+     * <p>
+     * The loop ends when the server channel is closed, fulfilling the
+     * returned promise with the number of connections accepted. Any other
+     * accept failure ends the loop and breaks the returned promise.
+     * </p>
+     *
+     * @param server
+     *            bound server channel. Must not be null.
+     *
+     * @param handler
+     *            connection handler. Any {@link Throwable} it throws is
+     *            treated as a broken handler promise. Must not be null.
+     *
+     * @return promise of the number of connections accepted.
+     *
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public static Promise<Long> serve(
+            final AsynchronousServerSocketChannel server,
+            final FunT1<? super AsynchronousSocketChannel, ? extends Promise<?>> handler) {
+
+        Objects.requireNonNull(server);
+        Objects.requireNonNull(handler);
+
+        final Async<Long> rval = Promises.async();
+        final AtomicLong accepted = new AtomicLong();
+
+        final CompletionHandler<AsynchronousSocketChannel, Void> h = new CompletionHandler<AsynchronousSocketChannel, Void>() {
+
+            @Override
+            public void completed(final AsynchronousSocketChannel conn,
+                    final Void none) {
+
+                accepted.incrementAndGet();
+                next();
+
+                Promise<?> done;
+                try {
+                    done = handler.apply(conn);
+                } catch (final Throwable t) {
+                    done = Promises.broken(t);
+                }
+                done.emit(any -> {
+                    try {
+                        conn.close();
+                    } catch (final IOException e) {
+                        /*
+                         * nothing to do
+                         */
+                    }
+                });
+
+            }
+
+            @Override
+            public void failed(final Throwable x, final Void none) {
+
+                if (x instanceof AsynchronousCloseException
+                        || x instanceof ClosedChannelException) {
+                    rval.succeed(accepted.get());
+                } else {
+                    rval.fail(x);
+                }
+
+            }
+
+            private void next() {
+                try {
+                    server.accept(null, this);
+                } catch (final Throwable t) {
+                    failed(t, null);
+                }
+            }
+        };
+
+        try {
+            server.accept(null, h);
+        } catch (final Throwable t) {
+            h.failed(t, null);
+        }
+        return rval.promise();
+
+    }
+
+    /**
+     * Write a buffer. This is a single write; the buffer may not be drained.
+     *
+     * @param ch
+     *            connected channel. Must not be null.
+     *
+     * @param src
+     *            source buffer. Must not be null.
+     *
+     * @return promise of the number of bytes written.
+     *
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public static Promise<Integer> write(final AsynchronousSocketChannel ch,
+            final ByteBuffer src) {
+
+        Objects.requireNonNull(ch);
+        Objects.requireNonNull(src);
+
+        final Async<Integer> rval = Promises.async();
+        final CompletionHandler<Integer, Async<Integer>> h = Completion
+                .instance();
+        try {
+            ch.write(src, rval, h);
+        } catch (final Throwable t) {
+            h.failed(t, rval);
+        }
+        return rval.promise();
+
+    }
+
+    /**
+     * Drain a sequence of buffers with gathering writes. Short writes are
+     * resumed until no buffer has bytes remaining.
+     *
+     * @param ch
+     *            connected channel. Must not be null.
+     *
+     * @param srcs
+     *            source buffers in order. Must not be null or contain null.
+     *
+     * @return promise of the total number of bytes written.
+     *
+     * @throws NullPointerException
+     *             if any argument is null.
+     */
+    public static Promise<Long> writeFully(final AsynchronousSocketChannel ch,
+            final ByteBuffer... srcs) {
+
+        Objects.requireNonNull(ch);
+        for (final ByteBuffer b : srcs) {
+            Objects.requireNonNull(b);
+        }
+
+        final Async<Long> rval = Promises.async();
+
+        final CompletionHandler<Long, Long> h = new CompletionHandler<Long, Long>() {
+
+            @Override
+            public void completed(final Long n, final Long sofar) {
+                final long total = sofar + n;
+                int first = 0;
+                while (first < srcs.length && !srcs[first].hasRemaining()) {
+                    first = first + 1;
+                }
+                if (first == srcs.length) {
+                    rval.succeed(total);
+                    return;
+                }
+                try {
+                    /*
+                     * there is no untimed gathering write. The JDK channels
+                     * arm no timer when the timeout is zero or less.
+                     */
+                    ch.write(srcs, first, srcs.length - first, 0L,
+                            TimeUnit.MILLISECONDS, total, this);
+                } catch (final Throwable t) {
+                    failed(t, total);
+                }
+            }
+
+            @Override
+            public void failed(final Throwable x, final Long sofar) {
+                rval.fail(x);
+            }
+        };
+
+        h.completed(0L, 0L);
+        return rval.promise();
+
+    }
+
+}
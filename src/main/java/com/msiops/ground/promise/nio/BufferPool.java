@@ -0,0 +1,124 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise.nio;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Pool of direct byte buffers of a single size. Direct buffers are expensive
+ * to allocate and release so I/O operations draw from and return to a pool
+ * rather than allocating per operation.
+ * </p>
+ *
+ * <p>
+ * Instances are thread-safe and do not lock.
+ * </p>
+ */
+public final class BufferPool {
+
+    private final int bufferSize;
+
+    private final int capacity;
+
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * Create a pool.
+     *
+     * @param bufferSize
+     *            capacity in bytes of each buffer. Must be positive.
+     *
+     * @param capacity
+     *            maximum number of idle buffers retained. Must not be
+     *            negative. Buffers released beyond this count are discarded.
+     *
+     * @throws IllegalArgumentException
+     *             if either argument is out of range.
+     */
+    public BufferPool(final int bufferSize, final int capacity) {
+
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+
+    }
+
+    /**
+     * Take a buffer from the pool, allocating a new one if none are idle.
+     *
+     * @return a cleared direct buffer of {@link #bufferSize()} capacity.
+     */
+    public ByteBuffer acquire() {
+
+        final ByteBuffer rval = this.free.poll();
+        if (rval == null) {
+            return ByteBuffer.allocateDirect(this.bufferSize);
+        }
+        this.pooled.decrementAndGet();
+        ((Buffer) rval).clear();
+        return rval;
+
+    }
+
+    /**
+     * Buffer capacity.
+     *
+     * @return capacity in bytes of buffers produced by this pool.
+     */
+    public int bufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * Return a buffer to the pool. The caller must not use the buffer after
+     * it is released. Buffers that did not come from a pool of the same
+     * buffer size are silently discarded.
+     *
+     * @param b
+     *            buffer to return. Must not be null.
+     *
+     * @throws NullPointerException
+     *             if argument is null.
+     */
+    public void release(final ByteBuffer b) {
+
+        Objects.requireNonNull(b);
+
+        if (!b.isDirect() || b.capacity() != this.bufferSize) {
+            return;
+        }
+        if (this.pooled.incrementAndGet() > this.capacity) {
+            this.pooled.decrementAndGet();
+            return;
+        }
+        this.free.offer(b);
+
+    }
+
+}
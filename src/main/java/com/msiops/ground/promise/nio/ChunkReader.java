@@ -0,0 +1,181 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise.nio;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+
+import com.msiops.footing.functional.FunT1;
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+/**
+ * <p>
+ * Read a region of a file into pooled buffers one buffer at a time. Each
+ * buffer is filled (short reads are resumed), flipped, and passed to a sink.
+ * The next read is not issued until the promise produced by the sink is
+ * fulfilled, so a slow sink throttles the reader.
+ * </p>
+ *
+ * <p>
+ * The loop is driven entirely by completion callbacks; no thread waits and no
+ * promise chain grows with the number of chunks.
+ * </p>
+ */
+final class ChunkReader implements CompletionHandler<Integer, ByteBuffer> {
+
+    private final AsynchronousFileChannel ch;
+
+    private final long end;
+
+    private final BufferPool pool;
+
+    private long position;
+
+    private final boolean retain;
+
+    private final Async<Long> result = Promises.async();
+
+    private final FunT1<? super ByteBuffer, ? extends Promise<?>> sink;
+
+    private final long start;
+
+    /**
+     * @param retain
+     *            if true, buffers passed to the sink belong to the sink and
+     *            are not returned to the pool by the reader.
+     */
+    ChunkReader(final AsynchronousFileChannel ch, final long position,
+            final long length, final BufferPool pool,
+            final FunT1<? super ByteBuffer, ? extends Promise<?>> sink,
+            final boolean retain) {
+
+        this.ch = ch;
+        this.start = position;
+        this.position = position;
+        /*
+         * saturate so Long.MAX_VALUE reads to end of file from any position
+         */
+        this.end = length > Long.MAX_VALUE - position ? Long.MAX_VALUE
+                : position + length;
+        this.pool = pool;
+        this.sink = sink;
+        this.retain = retain;
+
+    }
+
+    @Override
+    public void completed(final Integer n, final ByteBuffer b) {
+
+        if (n < 0) {
+            /*
+             * end of file came before end of region
+             */
+            if (b.position() > 0) {
+                deliver(b, true);
+            } else {
+                this.pool.release(b);
+                finish();
+            }
+            return;
+        }
+
+        this.position += n;
+        if (b.hasRemaining() && this.position < this.end) {
+            read(b);
+        } else {
+            deliver(b, false);
+        }
+
+    }
+
+    @Override
+    public void failed(final Throwable x, final ByteBuffer b) {
+
+        this.pool.release(b);
+        this.result.fail(x);
+
+    }
+
+    Promise<Long> start() {
+
+        next();
+        return this.result.promise();
+
+    }
+
+    private void deliver(final ByteBuffer b, final boolean last) {
+
+        ((Buffer) b).flip();
+        final Promise<?> ack;
+        try {
+            ack = this.sink.apply(b);
+        } catch (final Throwable t) {
+            this.pool.release(b);
+            this.result.fail(t);
+            return;
+        }
+        ack.forEach(any -> {
+            if (!this.retain) {
+                this.pool.release(b);
+            }
+            if (last) {
+                finish();
+            } else {
+                next();
+            }
+        });
+        ack.on(Throwable.class, x -> {
+            if (!this.retain) {
+                this.pool.release(b);
+            }
+            this.result.fail(x);
+        });
+
+    }
+
+    private void finish() {
+        this.result.succeed(this.position - this.start);
+    }
+
+    private void next() {
+
+        if (this.position >= this.end) {
+            finish();
+        } else {
+            read(this.pool.acquire());
+        }
+
+    }
+
+    private void read(final ByteBuffer b) {
+
+        final long left = this.end - this.position;
+        if (left < b.remaining()) {
+            ((Buffer) b).limit(b.position() + (int) left);
+        }
+        try {
+            this.ch.read(b, this.position, b, this);
+        } catch (final Throwable t) {
+            failed(t, b);
+        }
+
+    }
+
+}
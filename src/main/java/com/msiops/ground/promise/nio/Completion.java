@@ -0,0 +1,53 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.msiops.ground.promise.nio;
+
+import java.nio.channels.CompletionHandler;
+
+import com.msiops.ground.promise.Async;
+
+/**
+ * Complete an {@link Async} straight from a channel's completion handler. The
+ * async travels as the attachment so a single stateless instance serves every
+ * operation.
+ *
+ * @param <V>
+ *            result type.
+ */
+final class Completion<V> implements CompletionHandler<V, Async<V>> {
+
+    private static final Completion<?> INSTANCE = new Completion<>();
+
+    @SuppressWarnings("unchecked")
+    static <V> Completion<V> instance() {
+        return (Completion<V>) INSTANCE;
+    }
+
+    private Completion() {
+
+    }
+
+    @Override
+    public void completed(final V result, final Async<V> a) {
+        a.succeed(result);
+    }
+
+    @Override
+    public void failed(final Throwable x, final Async<V> a) {
+        a.fail(x);
+    }
+
+}
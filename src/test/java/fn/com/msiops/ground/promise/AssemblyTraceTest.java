@@ -0,0 +1,139 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promises;
+
+public class AssemblyTraceTest {
+
+    private Async<Integer> a;
+
+    private AtomicReference<Throwable> cap;
+
+    private Exception x;
+
+    @Before
+    public void setup() {
+
+        this.a = Promises.async();
+        this.cap = new AtomicReference<>();
+        this.x = new Exception();
+
+    }
+
+    @After
+    public void teardown() {
+
+        Promises.traceAssembly(0);
+
+    }
+
+    @Test
+    public void testChainCollectsTraces() {
+
+        Promises.traceAssembly(1);
+
+        this.a.promise().map(i -> i + 1).then(Promises::fulfilled)
+                .on(Throwable.class, this.cap::set);
+
+        this.a.fail(this.x);
+
+        assertSame(this.x, this.cap.get());
+        final Throwable[] traces = this.x.getSuppressed();
+        assertEquals(2, traces.length);
+        assertEquals("assembled at map", traces[0].getMessage());
+        assertEquals("assembled at then", traces[1].getMessage());
+        for (final Throwable t : traces) {
+            assertEquals(1, t.getStackTrace().length);
+            assertEquals("testChainCollectsTraces",
+                    t.getStackTrace()[0].getMethodName());
+        }
+
+    }
+
+    @Test
+    public void testContinuationErrorTraced() {
+
+        Promises.traceAssembly(1);
+
+        final RuntimeException rx = new RuntimeException();
+        this.a.promise().map(i -> {
+            throw rx;
+        }).on(Throwable.class, this.cap::set);
+
+        this.a.succeed(1);
+
+        assertSame(rx, this.cap.get());
+        assertEquals(1, rx.getSuppressed().length);
+
+    }
+
+    @Test
+    public void testFulfilledUnaffected() {
+
+        Promises.traceAssembly(1);
+
+        final AtomicReference<Integer> v = new AtomicReference<>();
+        this.a.promise().map(i -> i + 1).then(Promises::fulfilled)
+                .forEach(v::set);
+
+        this.a.succeed(1);
+
+        assertEquals(Integer.valueOf(2), v.get());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeInterval() {
+
+        Promises.traceAssembly(-1);
+
+    }
+
+    @Test
+    public void testOffByDefault() {
+
+        this.a.promise().map(i -> i + 1).on(Throwable.class, this.cap::set);
+
+        this.a.fail(this.x);
+
+        assertSame(this.x, this.cap.get());
+        assertEquals(0, this.x.getSuppressed().length);
+
+    }
+
+    @Test
+    public void testRegisteredBeforeTracingNotTraced() {
+
+        this.a.promise().map(i -> i + 1).on(Throwable.class, this.cap::set);
+
+        Promises.traceAssembly(1);
+        this.a.fail(this.x);
+
+        assertEquals(0, this.x.getSuppressed().length);
+
+    }
+
+}
@@ -0,0 +1,266 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.AsyncLoadingCache;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class AsyncLoadingCacheTest {
+
+    private Map<String, AtomicInteger> loads;
+
+    private Map<String, Async<Integer>> pending;
+
+    @Before
+    public void setup() {
+
+        this.loads = new ConcurrentHashMap<>();
+        this.pending = new ConcurrentHashMap<>();
+
+    }
+
+    @Test
+    public void testBrokenForgotten() {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(10, 0, 0, 0);
+
+        cache.get("k");
+        this.pending.get("k").fail(new Exception());
+        cache.get("k");
+
+        assertEquals(2, loads("k"));
+
+    }
+
+    @Test
+    public void testCached() {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(10, 0, 0, 0);
+
+        final Promise<Integer> p = cache.get("k");
+        this.pending.get("k").succeed(1);
+
+        assertSame(p, cache.get("k"));
+        assertEquals(Integer.valueOf(1), value(cache.get("k")));
+        assertEquals(1, loads("k"));
+
+    }
+
+    @Test
+    public void testExpireAfterWrite() throws Exception {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(10, 20, 0, 0);
+
+        cache.get("k");
+        this.pending.get("k").succeed(1);
+        Thread.sleep(40);
+        cache.get("k");
+
+        assertEquals(2, loads("k"));
+
+    }
+
+    @Test
+    public void testInFlightShared() {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(10, 0, 0, 0);
+
+        assertSame(cache.get("k"), cache.get("k"));
+        assertEquals(1, loads("k"));
+
+    }
+
+    @Test
+    public void testInvalidate() {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(10, 0, 0, 0);
+
+        cache.get("k");
+        this.pending.get("k").succeed(1);
+        cache.invalidate("k");
+        cache.get("k");
+
+        assertEquals(2, loads("k"));
+
+    }
+
+    @Test
+    public void testInvalidateRacingLoadsKeepsCapacity() throws Exception {
+
+        final int max = 4;
+        final AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<>(
+                k -> Promises.fulfilled(k.length()), max, 0, 0, 0,
+                TimeUnit.MILLISECONDS);
+
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    final String k = "k" + i % 8;
+                    cache.get(k);
+                    cache.invalidate(k);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread t : threads) {
+            t.join();
+        }
+
+        for (int i = 0; i < 2 * max; i++) {
+            cache.get("fill" + i);
+        }
+
+        assertEquals(max, cache.size());
+
+    }
+
+    @Test
+    public void testNegativeCached() throws Exception {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(10, 0, 0, 20);
+
+        cache.get("k");
+        this.pending.get("k").fail(new Exception());
+        cache.get("k");
+
+        assertEquals(1, loads("k"));
+
+        Thread.sleep(40);
+        cache.get("k");
+
+        assertEquals(2, loads("k"));
+
+    }
+
+    @Test
+    public void testRefreshOfInvalidatedDiscarded() throws Exception {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(10, 0, 20, 0);
+
+        cache.get("k");
+        this.pending.get("k").succeed(1);
+        Thread.sleep(40);
+        cache.get("k");
+        final Async<Integer> reload = this.pending.get("k");
+
+        cache.invalidate("k");
+        final Promise<Integer> fresh = cache.get("k");
+        reload.succeed(2);
+
+        assertNull(value(fresh));
+        this.pending.get("k").succeed(3);
+        assertEquals(Integer.valueOf(3), value(cache.get("k")));
+
+    }
+
+    @Test
+    public void testRefreshServesStale() throws Exception {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(10, 0, 20, 0);
+
+        cache.get("k");
+        this.pending.get("k").succeed(1);
+        Thread.sleep(40);
+
+        assertEquals(Integer.valueOf(1), value(cache.get("k")));
+        assertEquals(2, loads("k"));
+
+        /*
+         * refresh in flight is not repeated.
+         */
+        assertEquals(Integer.valueOf(1), value(cache.get("k")));
+        assertEquals(2, loads("k"));
+
+        this.pending.get("k").succeed(2);
+
+        assertEquals(Integer.valueOf(2), value(cache.get("k")));
+
+    }
+
+    @Test
+    public void testReusedEntrySurvivesScan() {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(3, 0, 0, 0);
+
+        cache.get("hot");
+        cache.get("hot");
+        for (int i = 0; i < 10; i++) {
+            cache.get("scan" + i);
+        }
+        cache.get("hot");
+
+        assertEquals(3, cache.size());
+        assertEquals(1, loads("hot"));
+        assertEquals(2, loads("scan9") + loads("scan8"));
+
+    }
+
+    @Test
+    public void testSizeBounded() {
+
+        final AsyncLoadingCache<String, Integer> cache = cache(2, 0, 0, 0);
+
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+
+        assertEquals(2, cache.size());
+
+        cache.get("a");
+
+        assertEquals(2, loads("a"));
+
+    }
+
+    private AsyncLoadingCache<String, Integer> cache(final int size,
+            final long expire, final long refresh, final long negative) {
+
+        return new AsyncLoadingCache<>(k -> {
+            this.loads.computeIfAbsent(k, any -> new AtomicInteger())
+                    .incrementAndGet();
+            final Async<Integer> a = Promises.async();
+            this.pending.put(k, a);
+            return a.promise();
+        }, size, expire, refresh, negative, TimeUnit.MILLISECONDS);
+
+    }
+
+    private int loads(final String k) {
+        final AtomicInteger n = this.loads.get(k);
+        return n == null ? 0 : n.get();
+    }
+
+    private Integer value(final Promise<Integer> p) {
+        final AtomicReference<Integer> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
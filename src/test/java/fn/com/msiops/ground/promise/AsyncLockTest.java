@@ -0,0 +1,128 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.AsyncLock;
+import com.msiops.ground.promise.Permit;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class AsyncLockTest {
+
+    private AsyncLock lock;
+
+    @Before
+    public void setup() {
+
+        this.lock = new AsyncLock();
+
+    }
+
+    @Test
+    public void testCallHoldsAcrossStages() {
+
+        final Async<Integer> a = Promises.async();
+        final Promise<Integer> p = this.lock.call(a::promise);
+
+        assertTrue(this.lock.isLocked());
+        assertNull(value(this.lock.acquire().map(any -> 1)));
+
+        a.succeed(1);
+
+        assertEquals(Integer.valueOf(1), value(p));
+
+    }
+
+    @Test
+    public void testExclusiveAcrossThreads() throws Exception {
+
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger overlap = new AtomicInteger();
+        final int threads = 8;
+        final int each = 2000;
+        final CountDownLatch done = new CountDownLatch(threads * each);
+
+        final ExecutorService exec = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                exec.execute(() -> {
+                    for (int i = 0; i < each; i++) {
+                        this.lock.acquire().forEach(permit -> {
+                            if (inside.incrementAndGet() != 1) {
+                                overlap.incrementAndGet();
+                            }
+                            inside.decrementAndGet();
+                            permit.release();
+                            done.countDown();
+                        });
+                    }
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            exec.shutdownNow();
+        }
+
+        assertEquals(0, overlap.get());
+        assertFalse(this.lock.isLocked());
+
+    }
+
+    @Test
+    public void testFifo() {
+
+        final Permit first = value(this.lock.acquire());
+        final List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final int id = i;
+            this.lock.acquire().forEach(p -> {
+                order.add(id);
+                p.release();
+            });
+        }
+
+        assertTrue(order.isEmpty());
+
+        first.release();
+
+        assertEquals(Arrays.asList(0, 1, 2), order);
+        assertFalse(this.lock.isLocked());
+
+    }
+
+    private <T> T value(final Promise<T> p) {
+        final AtomicReference<T> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.AsyncQueue;
+import com.msiops.ground.promise.Promise;
+
+public class AsyncQueueTest {
+
+    private AsyncQueue<Integer> q;
+
+    @Before
+    public void setup() {
+
+        this.q = new AsyncQueue<>(2);
+
+    }
+
+    @Test
+    public void testCapacityRounded() {
+
+        assertEquals(4, new AsyncQueue<Integer>(3).capacity());
+
+    }
+
+    @Test
+    public void testFullOfferWaits() {
+
+        assertEquals(Integer.valueOf(1), value(this.q.offer(1)));
+        assertEquals(Integer.valueOf(2), value(this.q.offer(2)));
+        final Promise<Integer> third = this.q.offer(3);
+
+        assertNull(value(third));
+        assertEquals(2, this.q.size());
+
+        assertEquals(Integer.valueOf(1), value(this.q.take()));
+
+        assertEquals(Integer.valueOf(3), value(third));
+        assertEquals(Integer.valueOf(2), value(this.q.take()));
+        assertEquals(Integer.valueOf(3), value(this.q.take()));
+
+    }
+
+    @Test
+    public void testMultiProducerMultiConsumer() throws Exception {
+
+        final int producers = 4;
+        final int consumers = 4;
+        final int each = 20000;
+        final AsyncQueue<Integer> big = new AsyncQueue<>(64);
+        final Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        final CountDownLatch done = new CountDownLatch(producers * each);
+
+        final ExecutorService exec = Executors.newFixedThreadPool(producers
+                + consumers);
+        try {
+            for (int c = 0; c < consumers; c++) {
+                exec.execute(() -> {
+                    for (int i = 0; i < producers * each / consumers; i++) {
+                        big.take().forEach(v -> {
+                            seen.add(v);
+                            done.countDown();
+                        });
+                    }
+                });
+            }
+            for (int p = 0; p < producers; p++) {
+                final int base = p * each;
+                exec.execute(() -> {
+                    for (int i = 0; i < each; i++) {
+                        big.offer(base + i);
+                    }
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            exec.shutdownNow();
+        }
+
+        assertEquals(producers * each, seen.size());
+        assertEquals(0, big.size());
+
+    }
+
+    @Test
+    public void testOrder() {
+
+        final List<Integer> got = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            this.q.take().forEach(got::add);
+        }
+        for (int i = 0; i < 5; i++) {
+            this.q.offer(i);
+        }
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), got);
+
+    }
+
+    @Test
+    public void testTakeWaits() {
+
+        final Promise<Integer> p = this.q.take();
+
+        assertNull(value(p));
+
+        this.q.offer(12);
+
+        assertEquals(Integer.valueOf(12), value(p));
+        assertEquals(0, this.q.size());
+
+    }
+
+    private <T> T value(final Promise<T> p) {
+        final AtomicReference<T> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
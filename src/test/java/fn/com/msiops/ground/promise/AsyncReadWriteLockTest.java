@@ -0,0 +1,179 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.AsyncReadWriteLock;
+import com.msiops.ground.promise.Permit;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class AsyncReadWriteLockTest {
+
+    private AsyncReadWriteLock lock;
+
+    @Before
+    public void setup() {
+
+        this.lock = new AsyncReadWriteLock();
+
+    }
+
+    @Test
+    public void testReaderBehindWriterWaits() {
+
+        final Permit r1 = value(this.lock.acquireRead());
+        final Promise<Permit> w = this.lock.acquireWrite();
+        final Promise<Permit> r2 = this.lock.acquireRead();
+
+        assertNull(value(w));
+        assertNull(value(r2));
+
+        r1.release();
+
+        assertNotNull(value(w));
+        assertNull(value(r2));
+
+        value(w).release();
+
+        assertNotNull(value(r2));
+
+    }
+
+    @Test
+    public void testReadersShare() {
+
+        assertNotNull(value(this.lock.acquireRead()));
+        assertNotNull(value(this.lock.acquireRead()));
+
+    }
+
+    @Test
+    public void testWaitingReadersGrantedTogether() {
+
+        final Permit w = value(this.lock.acquireWrite());
+        final List<String> order = new ArrayList<>();
+        final List<Permit> held = new ArrayList<>();
+        this.lock.acquireRead().forEach(p -> {
+            order.add("r1");
+            held.add(p);
+        });
+        this.lock.acquireRead().forEach(p -> {
+            order.add("r2");
+            held.add(p);
+        });
+        this.lock.acquireWrite().forEach(p -> {
+            order.add("w");
+            p.release();
+        });
+
+        w.release();
+
+        assertEquals(Arrays.asList("r1", "r2"), order);
+
+        held.forEach(Permit::release);
+
+        assertEquals(Arrays.asList("r1", "r2", "w"), order);
+
+    }
+
+    @Test
+    public void testWriteExcludesAcrossThreads() throws Exception {
+
+        final AtomicInteger readers = new AtomicInteger();
+        final AtomicInteger writers = new AtomicInteger();
+        final AtomicInteger violations = new AtomicInteger();
+        final int threads = 8;
+        final int each = 2000;
+        final CountDownLatch done = new CountDownLatch(threads * each);
+
+        final ExecutorService exec = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                final boolean write = t % 4 == 0;
+                exec.execute(() -> {
+                    for (int i = 0; i < each; i++) {
+                        if (write) {
+                            this.lock.acquireWrite().forEach(p -> {
+                                if (writers.incrementAndGet() != 1
+                                        || readers.get() != 0) {
+                                    violations.incrementAndGet();
+                                }
+                                writers.decrementAndGet();
+                                p.release();
+                                done.countDown();
+                            });
+                        } else {
+                            this.lock.acquireRead().forEach(p -> {
+                                readers.incrementAndGet();
+                                if (writers.get() != 0) {
+                                    violations.incrementAndGet();
+                                }
+                                readers.decrementAndGet();
+                                p.release();
+                                done.countDown();
+                            });
+                        }
+                    }
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            exec.shutdownNow();
+        }
+
+        assertEquals(0, violations.get());
+
+    }
+
+    @Test
+    public void testWriterExcludes() {
+
+        final Async<Integer> a = Promises.async();
+        final Promise<Integer> p = this.lock.write(a::promise);
+        final Promise<Integer> r = this.lock.read(() -> Promises.fulfilled(2));
+
+        assertNull(value(r));
+
+        a.succeed(1);
+
+        assertEquals(Integer.valueOf(1), value(p));
+        assertEquals(Integer.valueOf(2), value(r));
+
+    }
+
+    private <T> T value(final Promise<T> p) {
+        final AtomicReference<T> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
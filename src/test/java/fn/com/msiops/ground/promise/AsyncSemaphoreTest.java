@@ -0,0 +1,222 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.footing.functional.SupplierT;
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.AsyncSemaphore;
+import com.msiops.ground.promise.Permit;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class AsyncSemaphoreTest {
+
+    private List<Async<Integer>> calls;
+
+    private AsyncSemaphore s;
+
+    @Before
+    public void setup() {
+
+        this.calls = new ArrayList<>();
+        this.s = new AsyncSemaphore(2, 1);
+
+    }
+
+    @Test
+    public void testAcquireAvailable() {
+
+        assertNotNull(value(this.s.acquire()));
+        assertNotNull(value(this.s.acquire()));
+        assertEquals(0, this.s.available());
+
+    }
+
+    @Test
+    public void testBulkhead() {
+
+        final Function<SupplierT<? extends Promise<Integer>>, Promise<Integer>> bh = Promises
+                .bulkhead(2, 1);
+
+        bh.apply(this::call);
+        bh.apply(this::call);
+        bh.apply(this::call);
+        final Promise<Integer> refused = bh.apply(this::call);
+
+        assertEquals(2, this.calls.size());
+        assertTrue(error(refused) instanceof RejectedExecutionException);
+
+        this.calls.get(0).succeed(1);
+
+        assertEquals(3, this.calls.size());
+
+    }
+
+    @Test
+    public void testCallReleasesOnCompletion() {
+
+        final Promise<Integer> p = this.s.call(this::call);
+
+        assertEquals(1, this.s.available());
+
+        this.calls.get(0).fail(new Exception());
+
+        assertEquals(2, this.s.available());
+        assertNotNull(error(p));
+
+    }
+
+    @Test
+    public void testCallSupplierErrorReleases() {
+
+        final RuntimeException x = new RuntimeException();
+
+        final Promise<Integer> p = this.s.call(() -> {
+            throw x;
+        });
+
+        assertSame(x, error(p));
+        assertEquals(2, this.s.available());
+
+    }
+
+    @Test
+    public void testConcurrentLimit() throws Exception {
+
+        final AsyncSemaphore sem = new AsyncSemaphore(3);
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final int threads = 8;
+        final int each = 2000;
+        final CountDownLatch done = new CountDownLatch(threads * each);
+
+        final ExecutorService exec = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                exec.execute(() -> {
+                    for (int i = 0; i < each; i++) {
+                        sem.acquire().forEach(permit -> {
+                            peak.accumulateAndGet(active.incrementAndGet(),
+                                    Math::max);
+                            active.decrementAndGet();
+                            permit.release();
+                            done.countDown();
+                        });
+                    }
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            exec.shutdownNow();
+        }
+
+        assertTrue(peak.get() <= 3);
+        assertEquals(3, sem.available());
+        assertEquals(0, sem.waiting());
+
+    }
+
+    @Test
+    public void testFifo() {
+
+        final AsyncSemaphore unbounded = new AsyncSemaphore(1);
+        final Permit u = value(unbounded.acquire());
+
+        final List<Integer> order = new ArrayList<>();
+        unbounded.acquire().forEach(p -> {
+            order.add(1);
+            p.release();
+        });
+        unbounded.acquire().forEach(p -> {
+            order.add(2);
+            p.release();
+        });
+
+        assertEquals(2, unbounded.waiting());
+
+        u.release();
+
+        assertEquals(Arrays.asList(1, 2), order);
+
+    }
+
+    @Test
+    public void testReleaseOnce() {
+
+        final Permit p = value(this.s.acquire());
+
+        p.release();
+        p.release();
+
+        assertEquals(2, this.s.available());
+
+    }
+
+    @Test
+    public void testWaitingBounded() {
+
+        value(this.s.acquire());
+        final Permit p = value(this.s.acquire());
+
+        final Promise<Permit> queued = this.s.acquire();
+        final Promise<Permit> refused = this.s.acquire();
+
+        assertNull(value(queued));
+        assertTrue(error(refused) instanceof RejectedExecutionException);
+
+        p.release();
+
+        assertNotNull(value(queued));
+        assertEquals(0, this.s.waiting());
+
+    }
+
+    private Promise<Integer> call() {
+        final Async<Integer> a = Promises.async();
+        this.calls.add(a);
+        return a.promise();
+    }
+
+    private Throwable error(final Promise<?> p) {
+        final AtomicReference<Throwable> rval = new AtomicReference<>();
+        p.on(Throwable.class, rval::set);
+        return rval.get();
+    }
+
+    private <T> T value(final Promise<T> p) {
+        final AtomicReference<T> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
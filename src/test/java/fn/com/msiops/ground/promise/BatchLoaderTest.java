@@ -0,0 +1,207 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.BatchLoader;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class BatchLoaderTest {
+
+    private BlockingQueue<List<String>> batches;
+
+    private AtomicReference<Async<Map<String, Integer>>> result;
+
+    @Before
+    public void setup() {
+
+        this.batches = new ArrayBlockingQueue<>(10);
+        this.result = new AtomicReference<>();
+
+    }
+
+    @Test
+    public void testBatchBrokenBreaksAll() {
+
+        final BatchLoader<String, Integer> loader = loader(2, 1,
+                TimeUnit.HOURS);
+        final Exception x = new Exception();
+
+        final Promise<Integer> a = loader.load("a");
+        final Promise<Integer> b = loader.load("b");
+        this.result.get().fail(x);
+
+        assertSame(x, error(a));
+        assertSame(x, error(b));
+
+    }
+
+    @Test
+    public void testBatchFunctionErrorBreaksAll() {
+
+        final RuntimeException x = new RuntimeException();
+        final BatchLoader<String, Integer> loader = new BatchLoader<>(
+                keys -> {
+                    throw x;
+                }, 2, 1, TimeUnit.HOURS);
+
+        final Promise<Integer> a = loader.load("a");
+        final Promise<Integer> b = loader.load("b");
+
+        assertSame(x, error(a));
+        assertSame(x, error(b));
+
+    }
+
+    @Test
+    public void testDuplicateSent() {
+
+        final BatchLoader<String, Integer> loader = loader(10, 1,
+                TimeUnit.HOURS);
+
+        final Promise<Integer> a1 = loader.load("a");
+        final Promise<Integer> a2 = loader.load("a");
+        loader.flush();
+
+        assertSame(a1, a2);
+        assertEquals(Arrays.asList("a"), this.batches.poll());
+
+    }
+
+    @Test
+    public void testFlush() {
+
+        final BatchLoader<String, Integer> loader = loader(10, 1,
+                TimeUnit.HOURS);
+
+        loader.load("a");
+        loader.load("b");
+
+        assertTrue(this.batches.isEmpty());
+
+        loader.flush();
+
+        assertEquals(Arrays.asList("a", "b"), this.batches.poll());
+
+        loader.flush();
+
+        assertTrue(this.batches.isEmpty());
+
+    }
+
+    @Test
+    public void testFullBatchSent() {
+
+        final BatchLoader<String, Integer> loader = loader(3, 1,
+                TimeUnit.HOURS);
+
+        final Promise<Integer> a = loader.load("a");
+        final Promise<Integer> b = loader.load("b");
+
+        assertTrue(this.batches.isEmpty());
+
+        final Promise<Integer> c = loader.load("c");
+
+        assertEquals(Arrays.asList("a", "b", "c"), this.batches.poll());
+
+        final Map<String, Integer> m = new HashMap<>();
+        m.put("a", 1);
+        m.put("b", 2);
+        m.put("c", 3);
+        this.result.get().succeed(m);
+
+        assertEquals(Integer.valueOf(1), value(a));
+        assertEquals(Integer.valueOf(2), value(b));
+        assertEquals(Integer.valueOf(3), value(c));
+
+    }
+
+    @Test
+    public void testMissingKeyBroken() {
+
+        final BatchLoader<String, Integer> loader = loader(2, 1,
+                TimeUnit.HOURS);
+
+        final Promise<Integer> a = loader.load("a");
+        final Promise<Integer> b = loader.load("b");
+        this.result.get().succeed(Collections.singletonMap("a", 1));
+
+        assertEquals(Integer.valueOf(1), value(a));
+        assertTrue(error(b) instanceof NoSuchElementException);
+
+    }
+
+    @Test
+    public void testTickSendsBatch() throws Exception {
+
+        final BatchLoader<String, Integer> loader = loader(10, 20,
+                TimeUnit.MILLISECONDS);
+
+        loader.load("a");
+        loader.load("b");
+
+        assertEquals(Arrays.asList("a", "b"),
+                this.batches.poll(5, TimeUnit.SECONDS));
+
+        loader.load("c");
+
+        assertEquals(Arrays.asList("c"),
+                this.batches.poll(5, TimeUnit.SECONDS));
+
+    }
+
+    private Throwable error(final Promise<?> p) {
+        final AtomicReference<Throwable> rval = new AtomicReference<>();
+        p.on(Throwable.class, rval::set);
+        return rval.get();
+    }
+
+    private BatchLoader<String, Integer> loader(final int max,
+            final long tick, final TimeUnit unit) {
+
+        return new BatchLoader<>(keys -> {
+            final Async<Map<String, Integer>> a = Promises.async();
+            this.result.set(a);
+            this.batches.add(keys);
+            return a.promise();
+        }, max, tick, unit);
+
+    }
+
+    private Integer value(final Promise<Integer> p) {
+        final AtomicReference<Integer> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
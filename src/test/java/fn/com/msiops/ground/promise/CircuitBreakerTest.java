@@ -0,0 +1,229 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.CircuitBreaker;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class CircuitBreakerTest {
+
+    private CircuitBreaker cb;
+
+    private AtomicInteger invoked;
+
+    private Exception x;
+
+    @Before
+    public void setup() {
+
+        this.cb = new CircuitBreaker(4, 0.5, 0, 30, TimeUnit.MILLISECONDS);
+        this.invoked = new AtomicInteger();
+        this.x = new Exception();
+
+    }
+
+    @Test
+    public void testBelowThresholdStaysClosed() {
+
+        good();
+        good();
+        good();
+        bad();
+        good();
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.cb.state());
+
+    }
+
+    @Test
+    public void testFailedProbeReopens() throws Exception {
+
+        open();
+        Thread.sleep(40);
+        bad();
+
+        assertEquals(CircuitBreaker.State.OPEN, this.cb.state());
+        assertTrue(error(good()) instanceof RejectedExecutionException);
+
+    }
+
+    @Test
+    public void testOpensAtThreshold() {
+
+        good();
+        bad();
+        good();
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.cb.state());
+
+        bad();
+
+        assertEquals(CircuitBreaker.State.OPEN, this.cb.state());
+
+    }
+
+    @Test
+    public void testOpenRefuses() {
+
+        open();
+        final int before = this.invoked.get();
+
+        final Promise<Integer> p = good();
+
+        assertTrue(error(p) instanceof RejectedExecutionException);
+        assertEquals(before, this.invoked.get());
+
+    }
+
+    @Test
+    public void testProbeCloses() throws Exception {
+
+        open();
+        Thread.sleep(40);
+
+        final Async<Integer> probe = Promises.async();
+        this.cb.call(probe::promise);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.cb.state());
+        assertTrue(error(good()) instanceof RejectedExecutionException);
+
+        probe.succeed(1);
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.cb.state());
+        assertEquals(Integer.valueOf(1), value(good()));
+
+    }
+
+    @Test
+    public void testProbeTimesOut() throws Exception {
+
+        open();
+        Thread.sleep(40);
+
+        final Async<Integer> probe = Promises.async();
+        this.cb.call(probe::promise);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.cb.state());
+
+        Thread.sleep(40);
+
+        assertEquals(CircuitBreaker.State.OPEN, this.cb.state());
+
+        probe.succeed(1);
+        Thread.sleep(40);
+
+        assertEquals(Integer.valueOf(1), value(good()));
+        assertEquals(CircuitBreaker.State.CLOSED, this.cb.state());
+
+    }
+
+    @Test
+    public void testSlowCallsCountBad() throws Exception {
+
+        final CircuitBreaker slow = new CircuitBreaker(2, 1.0, 10, 60000,
+                TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 2; i++) {
+            final Async<Integer> a = Promises.async();
+            slow.call(a::promise);
+            Thread.sleep(20);
+            a.succeed(1);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, slow.state());
+
+    }
+
+    @Test
+    public void testStaleResultsDropped() throws Exception {
+
+        final Async<Integer> late = Promises.async();
+        this.cb.call(late::promise);
+        open();
+        Thread.sleep(40);
+        good();
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.cb.state());
+
+        late.fail(this.x);
+        good();
+        good();
+        bad();
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.cb.state());
+
+    }
+
+    @Test
+    public void testSupplierErrorCountsBad() {
+
+        final RuntimeException rx = new RuntimeException();
+        for (int i = 0; i < 4; i++) {
+            assertSame(rx, error(this.cb.call(() -> {
+                throw rx;
+            })));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, this.cb.state());
+
+    }
+
+    private Promise<Integer> bad() {
+        return this.cb.call(() -> {
+            this.invoked.incrementAndGet();
+            return Promises.broken(this.x);
+        });
+    }
+
+    private Throwable error(final Promise<?> p) {
+        final AtomicReference<Throwable> rval = new AtomicReference<>();
+        p.on(Throwable.class, rval::set);
+        return rval.get();
+    }
+
+    private Promise<Integer> good() {
+        return this.cb.call(() -> {
+            this.invoked.incrementAndGet();
+            return Promises.fulfilled(1);
+        });
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            bad();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, this.cb.state());
+    }
+
+    private Integer value(final Promise<Integer> p) {
+        final AtomicReference<Integer> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
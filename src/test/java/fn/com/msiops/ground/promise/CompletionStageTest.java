@@ -0,0 +1,254 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promises;
+import com.sun.net.httpserver.HttpServer;
+
+public class CompletionStageTest {
+
+    private Consumer<Object> c;
+
+    private ExecutorService exec;
+
+    private CountDownLatch release;
+
+    private HttpServer server;
+
+    @Before
+    public void setup() throws IOException {
+
+        @SuppressWarnings("unchecked")
+        final Consumer<Object> tc = mock(Consumer.class);
+        this.c = tc;
+
+        this.exec = Executors.newCachedThreadPool();
+        this.release = new CountDownLatch(1);
+
+        this.server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/hello", ex -> {
+            final byte[] body = "Hello".getBytes(StandardCharsets.UTF_8);
+            ex.sendResponseHeaders(200, body.length);
+            try (final OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        this.server.createContext("/slow", ex -> {
+            try {
+                this.release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ex.sendResponseHeaders(204, -1);
+            ex.close();
+        });
+        this.server.setExecutor(this.exec);
+        this.server.start();
+
+    }
+
+    @After
+    public void teardown() {
+
+        this.release.countDown();
+        this.server.stop(0);
+        this.exec.shutdownNow();
+
+    }
+
+    @Test
+    public void testAsyncCancelCancelsStage() {
+
+        final CompletableFuture<String> f = new CompletableFuture<>();
+        final Async<String> a = Promises.async();
+        a.adopt(f);
+
+        a.cancel();
+
+        assertTrue(f.isCancelled());
+
+    }
+
+    @Test
+    public void testCompletedDirectlyIgnoresStage() {
+
+        final CompletableFuture<Integer> f = new CompletableFuture<>();
+        final Async<Integer> a = Promises.async();
+        a.adopt(f);
+        a.promise().forEach(this.c);
+
+        a.succeed(1);
+        f.complete(2);
+
+        verify(this.c).accept(1);
+        verify(this.c, never()).accept(2);
+
+    }
+
+    @Test
+    public void testCompletionExceptionUnwrapped() {
+
+        final RuntimeException x = new RuntimeException();
+        final CompletableFuture<Integer> f = new CompletableFuture<>();
+
+        Promises.fromStage(f.thenApply(v -> v + 1)).on(Throwable.class,
+                this.c);
+        f.completeExceptionally(new CompletionException(x));
+
+        verify(this.c).accept(x);
+
+    }
+
+    @Test
+    public void testHttpResponse() throws Exception {
+
+        final String actual = Promises.fromStage(get("/hello")).toBlocking()
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals("Hello", actual);
+
+    }
+
+    @Test
+    public void testHttpTimeoutCancelsRequest() throws Exception {
+
+        final CompletableFuture<String> f = get("/slow");
+        try {
+            Promises.fromStage(f, 50, TimeUnit.MILLISECONDS).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+            fail("expected timeout");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        assertTrue(f.isCancelled());
+
+    }
+
+    @Test
+    public void testNullValueBreaks() {
+
+        Promises.fromStage(CompletableFuture.completedFuture(null)).on(
+                NullPointerException.class, this.c);
+
+        verify(this.c).accept(any(NullPointerException.class));
+
+    }
+
+    @Test
+    public void testStageBroken() {
+
+        final Exception x = new Exception();
+        final CompletableFuture<Integer> f = new CompletableFuture<>();
+
+        Promises.fromStage(f).on(Throwable.class, this.c);
+        verify(this.c, never()).accept(any());
+
+        f.completeExceptionally(x);
+        verify(this.c).accept(x);
+
+    }
+
+    @Test
+    public void testStageFulfilled() {
+
+        final CompletableFuture<Integer> f = new CompletableFuture<>();
+
+        Promises.fromStage(f).forEach(this.c);
+        verify(this.c, never()).accept(any());
+
+        f.complete(12);
+        verify(this.c).accept(12);
+
+    }
+
+    @Test
+    public void testTimeoutDiscardedOnCompletion() throws Exception {
+
+        final Integer actual = Promises
+                .fromStage(CompletableFuture.completedFuture(12), 1,
+                        TimeUnit.MILLISECONDS).toBlocking()
+                .get(5, TimeUnit.SECONDS);
+
+        Thread.sleep(20);
+        assertEquals(Integer.valueOf(12), actual);
+
+    }
+
+    /*
+     * stands in for an asynchronous HTTP client, which on Java 11+ would be
+     * HttpClient.sendAsync(..)
+     */
+    private CompletableFuture<String> get(final String path) {
+
+        final URL url;
+        try {
+            url = new URL("http", InetAddress.getLoopbackAddress()
+                    .getHostAddress(), this.server.getAddress().getPort(),
+                    path);
+        } catch (final IOException e) {
+            throw new AssertionError(e);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                final HttpURLConnection conn = (HttpURLConnection) url
+                        .openConnection();
+                try (final InputStream in = conn.getInputStream()) {
+                    final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                    final byte[] chunk = new byte[256];
+                    for (int n = in.read(chunk); n >= 0; n = in.read(chunk)) {
+                        buf.write(chunk, 0, n);
+                    }
+                    return new String(buf.toByteArray(),
+                            StandardCharsets.UTF_8);
+                }
+            } catch (final IOException e) {
+                throw new CompletionException(e);
+            }
+        }, this.exec);
+
+    }
+
+}
@@ -0,0 +1,274 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.ContextPropagator;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class ContextPropagationTest {
+
+    private Async<Integer> a;
+
+    private ThreadLocal<String> ctx;
+
+    private List<String> seen;
+
+    @Before
+    public void setup() {
+
+        this.a = Promises.async();
+        this.ctx = new ThreadLocal<>();
+        this.seen = new ArrayList<>();
+
+        Promises.propagate(ContextPropagator.of(this.ctx));
+
+    }
+
+    @After
+    public void teardown() {
+
+        Promises.propagate(null);
+        this.ctx.remove();
+
+    }
+
+    @Test
+    public void testChainInOneContextUnwrapped() {
+
+        final AtomicInteger swaps = new AtomicInteger();
+        final ContextPropagator tl = ContextPropagator.of(this.ctx);
+        Promises.propagate(new ContextPropagator() {
+
+            @Override
+            public Object current() {
+                return tl.current();
+            }
+
+            @Override
+            public Object swap(final Object context) {
+                swaps.incrementAndGet();
+                return tl.swap(context);
+            }
+        });
+
+        this.ctx.set("request");
+        this.a.promise().map(v -> v + 1).map(v -> v + 1)
+                .then(Promises::fulfilled).map(v -> this.ctx.get())
+                .forEach(this.seen::add);
+        this.ctx.remove();
+
+        this.a.succeed(1);
+
+        assertEquals("request", this.seen.get(0));
+        /*
+         * only the root's link differs from its promise's context. Each of
+         * the four derived promises swaps once in and once out around its
+         * links, and the inner promise of then is plumbing.
+         */
+        assertEquals(10, swaps.get());
+
+    }
+
+    @Test
+    public void testCompletingThreadContextRestored() {
+
+        this.ctx.set("request");
+        this.a.promise().forEach(v -> this.seen.add(this.ctx.get()));
+
+        this.ctx.set("completer");
+        this.a.succeed(1);
+
+        assertEquals("completer", this.ctx.get());
+        assertEquals("request", this.seen.get(0));
+
+    }
+
+    @Test
+    public void testContextPerRegistration() {
+
+        this.ctx.set("one");
+        this.a.promise().forEach(v -> this.seen.add(this.ctx.get()));
+        this.ctx.set("two");
+        this.a.promise().forEach(v -> this.seen.add(this.ctx.get()));
+        this.ctx.remove();
+
+        this.a.succeed(1);
+
+        assertEquals("one", this.seen.get(0));
+        assertEquals("two", this.seen.get(1));
+        assertNull(this.ctx.get());
+
+    }
+
+    @Test
+    public void testContextPerRegistrationOnDerived() {
+
+        this.ctx.set("one");
+        final Promise<Integer> shared = this.a.promise().map(v -> v + 1);
+        this.ctx.set("two");
+        shared.forEach(v -> this.seen.add(this.ctx.get()));
+        this.ctx.remove();
+        shared.forEach(v -> this.seen.add(this.ctx.get()));
+        this.ctx.set("one");
+        shared.forEach(v -> this.seen.add(this.ctx.get()));
+        this.ctx.remove();
+
+        this.a.succeed(1);
+
+        assertEquals("two", this.seen.get(0));
+        assertNull(this.seen.get(1));
+        assertEquals("one", this.seen.get(2));
+        assertNull(this.ctx.get());
+
+    }
+
+    @Test
+    public void testContextReachesAnotherThread() throws Exception {
+
+        this.ctx.set("request");
+        this.a.promise().map(v -> this.ctx.get()).then(Promises::fulfilled)
+                .forEach(this.seen::add);
+        this.ctx.remove();
+
+        final Thread t = new Thread(() -> this.a.succeed(1));
+        t.start();
+        t.join();
+
+        assertEquals("request", this.seen.get(0));
+
+    }
+
+    @Test
+    public void testFailingPropagatorIgnored() {
+
+        Promises.propagate(new ContextPropagator() {
+
+            @Override
+            public Object current() {
+                return "x";
+            }
+
+            @Override
+            public Object swap(final Object context) {
+                throw new RuntimeException();
+            }
+        });
+
+        final AtomicReference<Integer> v = new AtomicReference<>();
+        this.a.promise().map(i -> i + 1).forEach(v::set);
+
+        this.a.succeed(1);
+
+        assertEquals(Integer.valueOf(2), v.get());
+
+    }
+
+    @Test
+    public void testNoContextNoChange() {
+
+        this.a.promise().forEach(v -> this.seen.add(this.ctx.get()));
+
+        this.ctx.set("completer");
+        this.a.succeed(1);
+
+        assertEquals("completer", this.seen.get(0));
+
+    }
+
+    @Test
+    public void testPublisherSignalsInContext() {
+
+        this.ctx.set("request");
+        this.a.promise().map(v -> v).toPublisher()
+                .subscribe(new Subscriber<Integer>() {
+
+                    @Override
+                    public void onComplete() {
+                    }
+
+                    @Override
+                    public void onError(final Throwable t) {
+                    }
+
+                    @Override
+                    public void onNext(final Integer t) {
+                        ContextPropagationTest.this.seen
+                                .add(ContextPropagationTest.this.ctx.get());
+                    }
+
+                    @Override
+                    public void onSubscribe(final Subscription s) {
+                        s.request(1);
+                    }
+                });
+
+        this.ctx.set("completer");
+        this.a.succeed(1);
+
+        assertEquals("request", this.seen.get(0));
+
+    }
+
+    @Test
+    public void testRequireInheritsContext() {
+
+        final Async<Integer> dep = Promises.async();
+
+        this.ctx.set("request");
+        final Promise<Integer> p = this.a.promise().map(v -> v).require(
+                dep.promise());
+        p.forEach(v -> this.seen.add(this.ctx.get()));
+        this.ctx.remove();
+
+        this.ctx.set("completer");
+        this.a.succeed(1);
+        dep.succeed(2);
+
+        assertEquals("request", this.seen.get(0));
+
+    }
+
+    @Test
+    public void testStopped() {
+
+        Promises.propagate(null);
+
+        this.ctx.set("request");
+        this.a.promise().forEach(v -> this.seen.add(this.ctx.get()));
+
+        this.ctx.set("completer");
+        this.a.succeed(1);
+
+        assertEquals("completer", this.seen.get(0));
+
+    }
+
+}
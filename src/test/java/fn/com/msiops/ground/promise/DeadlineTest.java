@@ -0,0 +1,160 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Deadline;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class DeadlineTest {
+
+    private BlockingQueue<Throwable> errors;
+
+    private Function<Integer, Integer> f;
+
+    @Before
+    public void setup() {
+
+        @SuppressWarnings("unchecked")
+        final Function<Integer, Integer> tf = mock(Function.class);
+        when(tf.apply(any())).thenReturn(2);
+
+        this.errors = new ArrayBlockingQueue<>(10);
+        this.f = tf;
+
+    }
+
+    @Test
+    public void testCompletedInTime() {
+
+        final Async<Integer> a = Promises.async(Deadline.after(1,
+                TimeUnit.HOURS));
+        final BlockingQueue<Integer> values = new ArrayBlockingQueue<>(1);
+        a.promise().map(this.f).forEach(values::add);
+
+        a.succeed(1);
+
+        assertEquals(Integer.valueOf(2), values.poll());
+
+    }
+
+    @Test
+    public void testExpiredSkipsContinuation() throws Exception {
+
+        final Async<Integer> a = Promises.async(Deadline.after(0,
+                TimeUnit.MILLISECONDS));
+        a.promise().map(this.f).on(Throwable.class, this.errors::add);
+
+        a.succeed(1);
+
+        assertTrue(this.errors.poll(5, TimeUnit.SECONDS)
+                instanceof TimeoutException);
+        verify(this.f, never()).apply(any());
+
+    }
+
+    @Test
+    public void testExpiryBreaksDerivedPending() throws Exception {
+
+        final Async<Integer> a = Promises.async(Deadline.after(50,
+                TimeUnit.MILLISECONDS));
+        final Async<Integer> backend = Promises.async();
+        a.promise().then(v -> backend.promise()).map(this.f)
+                .on(Throwable.class, this.errors::add);
+
+        a.succeed(1);
+
+        assertTrue(this.errors.poll(5, TimeUnit.SECONDS)
+                instanceof TimeoutException);
+        assertNull(this.errors.poll(50, TimeUnit.MILLISECONDS));
+
+        /*
+         * late completion is ignored.
+         */
+        backend.succeed(3);
+        verify(this.f, never()).apply(any());
+
+    }
+
+    @Test
+    public void testInherited() {
+
+        final Deadline d = Deadline.after(1, TimeUnit.HOURS);
+        final Promise<Integer> root = Promises.<Integer> async(d).promise();
+
+        assertSame(d, root.deadline().get());
+        assertSame(d, root.map(this.f).deadline().get());
+        assertSame(d, root.then(Promises::fulfilled).deadline().get());
+        assertSame(d, root.defer(() -> Promises.fulfilled(1)).deadline()
+                .get());
+        assertSame(d, root.recover(Exception.class, x -> Promises.fulfilled(1))
+                .deadline().get());
+
+    }
+
+    @Test
+    public void testLateRootCompletionIgnored() throws Exception {
+
+        final Async<Integer> a = Promises.async(Deadline.after(10,
+                TimeUnit.MILLISECONDS));
+        a.promise().on(Throwable.class, this.errors::add);
+
+        assertTrue(this.errors.poll(5, TimeUnit.SECONDS)
+                instanceof TimeoutException);
+
+        a.succeed(1);
+
+    }
+
+    @Test
+    public void testNone() {
+
+        assertFalse(Promises.<Integer> async().promise().map(this.f)
+                .deadline().isPresent());
+
+    }
+
+    @Test
+    public void testRemaining() {
+
+        final Deadline d = Deadline.after(1, TimeUnit.HOURS);
+
+        assertFalse(d.expired());
+        assertTrue(d.remaining(TimeUnit.MINUTES) >= 59);
+        assertTrue(d.remaining(TimeUnit.MINUTES) <= 60);
+
+        final Deadline past = Deadline.after(-1, TimeUnit.SECONDS);
+
+        assertTrue(past.expired());
+        assertEquals(0, past.remaining(TimeUnit.NANOSECONDS));
+
+    }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.KeyedSequencer;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class KeyedSequencerTest {
+
+    private List<Async<Integer>> started;
+
+    private KeyedSequencer<String> seq;
+
+    @Before
+    public void setup() {
+
+        this.seq = new KeyedSequencer<>(4);
+        this.started = new ArrayList<>();
+
+    }
+
+    @Test
+    public void testBrokenPredecessorDoesNotBlock() {
+
+        final Promise<Integer> p1 = this.seq.submit("k", this::start);
+        final Promise<Integer> p2 = this.seq.submit("k", this::start);
+
+        final Exception x = new Exception();
+        this.started.get(0).fail(x);
+
+        assertSame(x, error(p1));
+        assertEquals(2, this.started.size());
+
+        this.started.get(1).succeed(2);
+
+        assertEquals(Integer.valueOf(2), value(p2));
+
+    }
+
+    @Test
+    public void testDistinctKeysConcurrent() {
+
+        this.seq.submit("a", this::start);
+        this.seq.submit("b", this::start);
+
+        assertEquals(2, this.started.size());
+        assertEquals(2, this.seq.size());
+
+    }
+
+    @Test
+    public void testIdleKeyForgotten() {
+
+        this.seq.submit("k", this::start);
+        this.seq.submit("k", this::start);
+
+        assertEquals(1, this.seq.size());
+
+        this.started.get(0).succeed(1);
+        this.started.get(1).succeed(2);
+
+        assertEquals(0, this.seq.size());
+
+    }
+
+    @Test
+    public void testLongSynchronousBacklog() {
+
+        final Async<Integer> gate = Promises.async();
+        this.seq.submit("k", gate::promise);
+        final List<Integer> done = new ArrayList<>();
+        final int n = 100000;
+        for (int i = 0; i < n; i++) {
+            final int id = i;
+            this.seq.submit("k", () -> Promises.fulfilled(id)).forEach(
+                    done::add);
+        }
+
+        gate.succeed(0);
+
+        assertEquals(n, done.size());
+        assertEquals(Integer.valueOf(n - 1), done.get(n - 1));
+        assertEquals(0, this.seq.size());
+
+    }
+
+    @Test
+    public void testSameKeyInOrder() {
+
+        final List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            this.seq.submit("k", this::start).forEach(order::add);
+        }
+
+        assertEquals(1, this.started.size());
+
+        this.started.get(0).succeed(0);
+
+        assertEquals(2, this.started.size());
+
+        this.started.get(1).succeed(1);
+        this.started.get(2).succeed(2);
+
+        assertEquals(Arrays.asList(0, 1, 2), order);
+
+    }
+
+    @Test
+    public void testSupplierErrorBreaks() {
+
+        final RuntimeException x = new RuntimeException();
+
+        final Promise<Integer> p = this.seq.submit("k", () -> {
+            throw x;
+        });
+        this.seq.submit("k", this::start);
+
+        assertSame(x, error(p));
+        assertEquals(1, this.started.size());
+
+    }
+
+    private Throwable error(final Promise<?> p) {
+        final AtomicReference<Throwable> rval = new AtomicReference<>();
+        p.on(Throwable.class, rval::set);
+        return rval.get();
+    }
+
+    private Promise<Integer> start() {
+        final Async<Integer> a = Promises.async();
+        this.started.add(a);
+        return a.promise();
+    }
+
+    private <T> T value(final Promise<T> p) {
+        final AtomicReference<T> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
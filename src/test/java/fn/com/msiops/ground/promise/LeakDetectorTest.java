@@ -0,0 +1,159 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Deadline;
+import com.msiops.ground.promise.LeakDetector;
+import com.msiops.ground.promise.LeakDetector.Leak;
+import com.msiops.ground.promise.Promises;
+
+public class LeakDetectorTest {
+
+    private LinkedBlockingQueue<Leak> leaks;
+
+    @Before
+    public void setup() {
+
+        this.leaks = new LinkedBlockingQueue<>();
+
+    }
+
+    @After
+    public void teardown() {
+
+        LeakDetector.disable();
+
+    }
+
+    @Test
+    public void testAgedReported() throws Exception {
+
+        LeakDetector.enable(1, 20, TimeUnit.MILLISECONDS, this.leaks::add);
+
+        final Async<Integer> a = Promises.async();
+
+        final Leak leak = this.leaks.poll(5, TimeUnit.SECONDS);
+        assertNotNull(leak);
+        assertFalse(leak.collected());
+        assertTrue(leak.age(TimeUnit.MILLISECONDS) >= 20);
+        assertEquals("testAgedReported",
+                leak.creationSite().getStackTrace()[0].getMethodName());
+
+        /*
+         * reported once only.
+         */
+        assertNull(this.leaks.poll(100, TimeUnit.MILLISECONDS));
+
+        a.succeed(1);
+
+    }
+
+    @Test
+    public void testCollectedReported() throws Exception {
+
+        LeakDetector.enable(1, 1, TimeUnit.HOURS, this.leaks::add);
+
+        Promises.async();
+
+        Leak leak = null;
+        for (int i = 0; i < 50 && leak == null; i++) {
+            System.gc();
+            leak = this.leaks.poll(100, TimeUnit.MILLISECONDS);
+        }
+        assertNotNull(leak);
+        assertTrue(leak.collected());
+
+    }
+
+    @Test
+    public void testCompletedNotReported() throws Exception {
+
+        LeakDetector.enable(1, 20, TimeUnit.MILLISECONDS, this.leaks::add);
+
+        Promises.<Integer> async().succeed(1);
+        Promises.<Integer> async().fail(new Exception());
+        Promises.<Integer> async().cancel();
+        final Async<Integer> kept = Promises.async();
+        kept.succeed(2);
+
+        System.gc();
+        assertNull(this.leaks.poll(200, TimeUnit.MILLISECONDS));
+
+    }
+
+    @Test
+    public void testDisabledNotReported() throws Exception {
+
+        LeakDetector.enable(1, 20, TimeUnit.MILLISECONDS, this.leaks::add);
+        LeakDetector.disable();
+
+        final Async<Integer> a = Promises.async();
+
+        assertNull(this.leaks.poll(200, TimeUnit.MILLISECONDS));
+
+        a.succeed(1);
+
+    }
+
+    @Test
+    public void testExpiredNotReported() throws Exception {
+
+        LeakDetector.enable(1, 100, TimeUnit.MILLISECONDS, this.leaks::add);
+
+        final Async<Integer> a = Promises.async(Deadline.after(10,
+                TimeUnit.MILLISECONDS));
+
+        assertNull(this.leaks.poll(300, TimeUnit.MILLISECONDS));
+
+        /*
+         * late completion by the owner is ignored.
+         */
+        a.succeed(1);
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInterval() {
+
+        LeakDetector.enable(0, 1, TimeUnit.SECONDS, this.leaks::add);
+
+    }
+
+    @Test
+    public void testSampled() throws Exception {
+
+        LeakDetector.enable(1000000, 20, TimeUnit.MILLISECONDS,
+                this.leaks::add);
+
+        final Async<Integer> a = Promises.async();
+
+        assertNull(this.leaks.poll(200, TimeUnit.MILLISECONDS));
+
+        a.succeed(1);
+
+    }
+
+}
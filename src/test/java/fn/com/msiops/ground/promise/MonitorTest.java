@@ -0,0 +1,191 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.PromiseMonitor;
+import com.msiops.ground.promise.PromiseStats;
+import com.msiops.ground.promise.Promises;
+
+public class MonitorTest {
+
+    private PromiseStats stats;
+
+    @Before
+    public void setup() {
+
+        this.stats = new PromiseStats();
+        Promises.monitor(this.stats);
+
+    }
+
+    @After
+    public void teardown() {
+
+        Promises.monitor(null);
+
+    }
+
+    @Test
+    public void testCompletionOutcomesCounted() {
+
+        Promises.fulfilled(1);
+        Promises.broken(new RuntimeException());
+        Promises.canceled();
+
+        assertEquals(3, this.stats.createdCount());
+        assertEquals(1, this.stats.fulfilledCount());
+        assertEquals(1, this.stats.brokenCount());
+        assertEquals(1, this.stats.canceledCount());
+        assertEquals(0, this.stats.outstanding());
+
+    }
+
+    @Test
+    public void testLatencyRecorded() throws Exception {
+
+        final Async<Integer> a = Promises.async();
+        Thread.sleep(20);
+        a.succeed(1);
+
+        final long p50 = this.stats.latency(0.5, TimeUnit.MILLISECONDS);
+        assertTrue(p50 >= 18);
+        assertTrue(p50 < 1000);
+
+    }
+
+    @Test
+    public void testMonitorErrorIgnored() {
+
+        final PromiseMonitor m = mock(PromiseMonitor.class);
+        doThrow(new RuntimeException()).when(m).created();
+        Promises.monitor(m);
+
+        final Async<Integer> a = Promises.async();
+        a.succeed(1);
+
+        verify(m).completed(eq(PromiseMonitor.Outcome.FULFILLED), anyLong());
+
+    }
+
+    @Test
+    public void testOutstandingTracksIncomplete() {
+
+        final Async<Integer> a = Promises.async();
+
+        assertEquals(1, this.stats.outstanding());
+
+        a.succeed(1);
+
+        assertEquals(0, this.stats.outstanding());
+
+    }
+
+    @Test
+    public void testPendingListenersTracked() {
+
+        final Async<Integer> a = Promises.async();
+        a.promise().forEach(v -> {
+        });
+        a.promise().forEach(v -> {
+        });
+        a.promise().forEach(v -> {
+        });
+        a.succeed(1);
+        a.promise().forEach(v -> {
+        });
+
+        assertEquals(3, this.stats.boundCount());
+        assertEquals(3, this.stats.maxPending());
+
+    }
+
+    @Test
+    public void testReplacedMonitorReturned() {
+
+        assertSame(this.stats, Promises.monitor(null));
+
+    }
+
+    @Test
+    public void testSlowContinuationExcludesDownstream() {
+
+        final PromiseStats slow = new PromiseStats(10, TimeUnit.MILLISECONDS);
+        Promises.monitor(slow);
+
+        final Function<Integer, Integer> quick = v -> v + 1;
+        final Function<Integer, Integer> sleepy = v -> {
+            try {
+                Thread.sleep(30);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return v;
+        };
+
+        final Async<Integer> a = Promises.async();
+        a.promise().map(quick).map(sleepy).map(quick);
+        a.succeed(1);
+
+        final Map<Class<?>, Long> counts = slow.slowCounts();
+        assertEquals(1, counts.size());
+        assertEquals(Long.valueOf(1), counts.get(sleepy.getClass()));
+
+    }
+
+    @Test
+    public void testSlowReportedWithStage() {
+
+        final PromiseMonitor m = mock(PromiseMonitor.class);
+        when(m.slowThreshold()).thenReturn(0L);
+        Promises.monitor(m);
+
+        final Runnable r = () -> {
+        };
+        Promises.canceled().onCanceled(r);
+
+        verify(m).slow(eq(PromiseMonitor.Stage.ON_CANCELED),
+                eq(r.getClass()), anyLong());
+
+    }
+
+    @Test
+    public void testUnmonitoredCreationNotReported() {
+
+        Promises.monitor(null);
+        final Async<Integer> a = Promises.async();
+        Promises.monitor(this.stats);
+
+        a.succeed(1);
+
+        assertEquals(0, this.stats.createdCount());
+        assertEquals(0, this.stats.fulfilledCount());
+
+    }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.PromiseCache;
+import com.msiops.ground.promise.Promises;
+
+public class PromiseCacheTest {
+
+    private Async<Integer> a;
+
+    private PromiseCache<String, Integer> cache;
+
+    private AtomicInteger calls;
+
+    @Before
+    public void setup() {
+
+        this.a = Promises.async();
+        this.cache = new PromiseCache<>();
+        this.calls = new AtomicInteger();
+
+    }
+
+    @Test
+    public void testBrokenForgotten() {
+
+        final Exception x = new Exception();
+
+        @SuppressWarnings("unchecked")
+        final Consumer<Throwable> c = mock(Consumer.class);
+
+        this.cache.get("k", this::load).on(Throwable.class, c);
+        this.a.fail(x);
+
+        verify(c).accept(x);
+        assertEquals(0, this.cache.size());
+
+    }
+
+    @Test
+    public void testConcurrentCallersShare() throws Exception {
+
+        final int n = 8;
+        final ExecutorService exec = Executors.newFixedThreadPool(n);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Promise<Integer>>> got = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                got.add(exec.submit(() -> {
+                    start.await();
+                    return this.cache.get("k", this::load);
+                }));
+            }
+            start.countDown();
+            for (int i = 1; i < n; i++) {
+                assertSame(got.get(0).get(5, TimeUnit.SECONDS), got.get(i)
+                        .get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            exec.shutdownNow();
+        }
+
+        assertEquals(1, this.calls.get());
+
+    }
+
+    @Test
+    public void testDistinctKeys() {
+
+        this.cache.get("k1", this::load);
+        this.cache.get("k2", this::load);
+
+        assertEquals(2, this.calls.get());
+        assertEquals(2, this.cache.size());
+
+    }
+
+    @Test
+    public void testFulfilledForgotten() {
+
+        final AtomicReference<Integer> v = new AtomicReference<>();
+        final AtomicReference<Promise<Integer>> again = new AtomicReference<>();
+
+        final Promise<Integer> p = this.cache.get("k", this::load);
+        p.forEach(i -> {
+            v.set(i);
+            again.set(this.cache.get("k", this::load));
+        });
+        this.a.succeed(12);
+
+        assertEquals(Integer.valueOf(12), v.get());
+        assertNotSame(p, again.get());
+        assertEquals(2, this.calls.get());
+
+    }
+
+    @Test
+    public void testInFlightShared() {
+
+        final Promise<Integer> p1 = this.cache.get("k", this::load);
+        final Promise<Integer> p2 = this.cache.get("k", this::load);
+
+        assertSame(p1, p2);
+        assertEquals(1, this.calls.get());
+
+    }
+
+    @Test
+    public void testSingleflight() {
+
+        final Function<String, Promise<Integer>> f = Promises
+                .singleflight(k -> load());
+
+        assertSame(f.apply("k"), f.apply("k"));
+        assertEquals(1, this.calls.get());
+
+    }
+
+    @Test
+    public void testSupplierErrorBreaks() {
+
+        final RuntimeException x = new RuntimeException();
+
+        @SuppressWarnings("unchecked")
+        final Consumer<Throwable> c = mock(Consumer.class);
+
+        this.cache.get("k", () -> {
+            throw x;
+        }).on(Throwable.class, c);
+
+        verify(c).accept(x);
+        assertEquals(0, this.cache.size());
+
+    }
+
+    @Test
+    public void testSynchronousNotRetained() {
+
+        this.cache.get("k", () -> Promises.fulfilled(1));
+
+        assertEquals(0, this.cache.size());
+
+    }
+
+    private Promise<Integer> load() {
+        this.calls.incrementAndGet();
+        return this.a.promise();
+    }
+
+}
@@ -0,0 +1,297 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.AsyncSemaphore;
+import com.msiops.ground.promise.Permit;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.PromiseScope;
+import com.msiops.ground.promise.Promises;
+
+public class PromiseScopeTest {
+
+    private AtomicReference<Async<Integer>> child;
+
+    private PromiseScope scope;
+
+    @Before
+    public void setup() {
+
+        this.child = new AtomicReference<>();
+        this.scope = new PromiseScope();
+
+    }
+
+    @Test
+    public void testBodyFailureCancelsChildren() {
+
+        final Exception x = new Exception();
+        final Promise<Integer> r = this.scope.run(() -> {
+            this.child.set(this.scope.async());
+            return Promises.broken(x);
+        });
+
+        assertTrue(error(this.child.get().promise()) instanceof CancellationException);
+        assertSame(x, error(r));
+        assertEquals(0, this.scope.active());
+
+    }
+
+    @Test
+    public void testBodyFailureRevokesLaterChildren() {
+
+        final Exception x = new Exception();
+        final Async<Integer> body = Promises.async();
+        final Async<Integer> work = Promises.async();
+        final PromiseScope inner = this.scope.scope();
+        final Promise<Integer> r = this.scope.run(() -> {
+            inner.run(work::promise);
+            return body.promise();
+        });
+
+        body.fail(x);
+
+        assertNull(error(r));
+
+        // work that outlived the failure tries to spawn more
+        final Async<Integer> late = this.scope.async();
+        final PromiseScope lateScope = this.scope.scope();
+
+        assertTrue(error(late.promise()) instanceof CancellationException);
+        assertTrue(error(lateScope.run(() -> Promises.fulfilled(1))) instanceof CancellationException);
+        assertEquals(1, this.scope.active());
+
+        work.succeed(1);
+
+        assertEquals(0, this.scope.active());
+        assertSame(x, error(r));
+
+    }
+
+    @Test
+    public void testBodyThrowsCancelsChildren() {
+
+        final RuntimeException x = new RuntimeException();
+        final Promise<Integer> r = this.scope.run(() -> {
+            this.child.set(this.scope.async());
+            throw x;
+        });
+
+        assertTrue(error(this.child.get().promise()) instanceof CancellationException);
+        assertSame(x, error(r));
+
+    }
+
+    @Test
+    public void testCancel() {
+
+        final Async<Integer> body = Promises.async();
+        final Promise<Integer> r = this.scope.run(() -> {
+            this.child.set(this.scope.async());
+            return body.promise();
+        });
+
+        this.scope.cancel();
+
+        assertTrue(error(this.child.get().promise()) instanceof CancellationException);
+        assertNull(error(r));
+
+        body.succeed(1);
+
+        assertTrue(error(r) instanceof CancellationException);
+
+    }
+
+    @Test
+    public void testCompletesAfterChildren() {
+
+        final Promise<Integer> r = this.scope.run(() -> {
+            this.child.set(this.scope.async());
+            return Promises.fulfilled(1);
+        });
+
+        assertEquals(1, this.scope.active());
+        assertNull(value(r));
+
+        this.child.get().succeed(2);
+
+        assertEquals(0, this.scope.active());
+        assertEquals(Integer.valueOf(1), value(r));
+
+    }
+
+    @Test
+    public void testCancelBeforeRun() {
+
+        final PromiseScope inner = this.scope.scope();
+        final Promise<Integer> r = this.scope.run(() -> Promises.fulfilled(1));
+
+        assertNull(value(r));
+
+        inner.cancel();
+
+        assertEquals(Integer.valueOf(1), value(r));
+        assertTrue(error(inner.run(() -> {
+            throw new AssertionError("body must not run");
+        })) instanceof CancellationException);
+
+    }
+
+    @Test
+    public void testCancelSparesInternalAsyncs() {
+
+        final AsyncSemaphore sem = new AsyncSemaphore(1);
+        final Permit held = value(sem.acquire());
+
+        final AtomicReference<Promise<Permit>> waiter = new AtomicReference<>();
+        final Promise<Permit> r = this.scope.run(() -> {
+            waiter.set(sem.acquire());
+            this.child.set(this.scope.async());
+            return waiter.get();
+        });
+
+        assertEquals(1, sem.waiting());
+
+        this.scope.cancel();
+        held.release();
+
+        final Permit granted = value(waiter.get());
+        assertNotNull(granted);
+        assertTrue(error(this.child.get().promise()) instanceof CancellationException);
+        assertTrue(error(r) instanceof CancellationException);
+
+        granted.release();
+        assertEquals(1, sem.available());
+
+    }
+
+    @Test
+    public void testCompleteAfterCancelIgnored() {
+
+        final Promise<Integer> r = this.scope.run(() -> {
+            this.child.set(this.scope.async());
+            return Promises.fulfilled(1);
+        });
+
+        this.scope.cancel();
+        this.child.get().succeed(2);
+
+        assertTrue(error(this.child.get().promise()) instanceof CancellationException);
+        assertTrue(error(r) instanceof CancellationException);
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEnrollAfterCompleteFails() {
+
+        this.scope.run(() -> Promises.fulfilled(1));
+        this.scope.async();
+
+    }
+
+    @Test
+    public void testNested() {
+
+        final PromiseScope inner = this.scope.scope();
+        final AtomicReference<Async<Integer>> innerChild = new AtomicReference<>();
+
+        final Promise<Integer> r = this.scope.run(() -> {
+            inner.run(() -> {
+                innerChild.set(inner.async());
+                return Promises.fulfilled(1);
+            });
+            this.child.set(this.scope.async());
+            return Promises.fulfilled(2);
+        });
+
+        assertEquals(1, inner.active());
+        assertEquals(2, this.scope.active());
+
+        this.child.get().succeed(3);
+        assertEquals(1, this.scope.active());
+        assertNull(value(r));
+
+        innerChild.get().succeed(4);
+        assertEquals(0, this.scope.active());
+        assertEquals(Integer.valueOf(2), value(r));
+
+    }
+
+    @Test
+    public void testNestedCancel() {
+
+        final PromiseScope inner = this.scope.scope();
+        final AtomicReference<Async<Integer>> innerChild = new AtomicReference<>();
+
+        final Promise<Integer> r = this.scope.run(() -> inner.run(() -> {
+            innerChild.set(inner.async());
+            return Promises.fulfilled(1);
+        }));
+
+        this.scope.cancel();
+
+        assertTrue(error(innerChild.get().promise()) instanceof CancellationException);
+        assertEquals(0, this.scope.active());
+        assertTrue(error(r) instanceof CancellationException);
+
+    }
+
+    @Test
+    public void testOnlyEnrolledTracked() {
+
+        final Async<Integer> other = Promises.async();
+        this.scope.run(() -> {
+            Promises.async();
+            return other.promise();
+        });
+
+        assertEquals(0, this.scope.active());
+
+        this.scope.cancel();
+        other.succeed(1);
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRunOnce() {
+
+        this.scope.run(() -> Promises.fulfilled(1));
+        this.scope.run(() -> Promises.fulfilled(1));
+
+    }
+
+    private Throwable error(final Promise<?> p) {
+        final AtomicReference<Throwable> rval = new AtomicReference<>();
+        p.on(Throwable.class, rval::set);
+        return rval.get();
+    }
+
+    private <T> T value(final Promise<T> p) {
+        final AtomicReference<T> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
@@ -0,0 +1,386 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.PromiseStream;
+import com.msiops.ground.promise.Promises;
+
+public class PromiseStreamTest {
+
+    private List<Async<Optional<Integer>>> pulls;
+
+    private PromiseStream<Integer> src;
+
+    @Before
+    public void setup() {
+
+        this.pulls = new ArrayList<>();
+        this.src = () -> {
+            final Async<Optional<Integer>> a = Promises.async();
+            this.pulls.add(a);
+            return a.promise();
+        };
+
+    }
+
+    @Test
+    public void testAsyncSourceResumesCollect() {
+
+        final Promise<List<Integer>> p = this.src.take(3).collect(
+                Collectors.toList());
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(value(p));
+            this.pulls.get(i).succeed(Optional.of(i));
+        }
+
+        assertEquals(Arrays.asList(0, 1, 2), value(p));
+
+    }
+
+    @Test
+    public void testBatchByDelay() throws Exception {
+
+        final PromiseStream<List<Integer>> s = this.src.batch(10, 20,
+                TimeUnit.MILLISECONDS);
+
+        final CountDownLatch emitted = new CountDownLatch(1);
+        final AtomicReference<Optional<List<Integer>>> got = new AtomicReference<>();
+        s.next().forEach(v -> {
+            got.set(v);
+            emitted.countDown();
+        });
+        this.pulls.get(0).succeed(Optional.of(1));
+
+        assertTrue(emitted.await(5, TimeUnit.SECONDS));
+        assertEquals(Optional.of(Arrays.asList(1)), got.get());
+
+        /*
+         * pull in flight at emission carries into the next list.
+         */
+        assertEquals(2, this.pulls.size());
+
+    }
+
+    @Test
+    public void testBatchBySize() {
+
+        final PromiseStream<List<Integer>> s = PromiseStream.of(1, 2, 3)
+                .batch(2, 1, TimeUnit.HOURS);
+
+        assertEquals(Optional.of(Arrays.asList(1, 2)), value(s.next()));
+        assertEquals(Optional.of(Arrays.asList(3)), value(s.next()));
+        assertEquals(Optional.empty(), value(s.next()));
+
+    }
+
+    @Test
+    public void testBufferDeliversErrorThenEnds() {
+
+        final Exception x = new Exception();
+        final PromiseStream<Integer> s = this.src.buffer(4);
+
+        final Promise<Optional<Integer>> first = s.next();
+        this.pulls.get(0).succeed(Optional.of(1));
+        this.pulls.get(1).fail(x);
+
+        assertEquals(2, this.pulls.size());
+        assertEquals(Optional.of(1), value(first));
+        assertSame(x, error(s.next()));
+        assertEquals(Optional.empty(), value(s.next()));
+
+    }
+
+    @Test
+    public void testBufferPullsAhead() {
+
+        final PromiseStream<Integer> s = this.src.buffer(3);
+
+        final Promise<Optional<Integer>> first = s.next();
+        assertEquals(1, this.pulls.size());
+
+        for (int i = 0; i < this.pulls.size(); i++) {
+            this.pulls.get(i).succeed(Optional.of(i));
+        }
+
+        /*
+         * one delivered and three ahead.
+         */
+        assertEquals(4, this.pulls.size());
+        assertEquals(Optional.of(0), value(first));
+
+        assertEquals(Optional.of(1), value(s.next()));
+        assertEquals(5, this.pulls.size());
+
+    }
+
+    @Test
+    public void testCollect() {
+
+        assertEquals(Arrays.asList(1, 2, 3),
+                value(PromiseStream.of(1, 2, 3).collect(Collectors.toList())));
+
+    }
+
+    @Test
+    public void testEmpty() {
+
+        assertEquals(Collections.emptyList(),
+                value(PromiseStream.empty().collect(Collectors.toList())));
+
+    }
+
+    @Test
+    public void testFilter() {
+
+        assertEquals(Arrays.asList(2, 4),
+                value(PromiseStream.of(1, 2, 3, 4, 5).filter(i -> i % 2 == 0)
+                        .collect(Collectors.toList())));
+
+    }
+
+    @Test
+    public void testFilterLongSynchronousRun() {
+
+        final List<Integer> all = IntStream.range(0, 200000).boxed()
+                .collect(Collectors.toList());
+
+        assertEquals(Optional.of(199999), value(PromiseStream.fromIterable(all)
+                .filter(i -> i == 199999).next()));
+
+    }
+
+    @Test
+    public void testFlatMap() {
+
+        assertEquals(
+                Arrays.asList(1, 2, 2, 3, 3, 3),
+                value(PromiseStream
+                        .of(0, 1, 2, 3)
+                        .flatMap(
+                                i -> PromiseStream.fromIterable(Collections
+                                        .nCopies(i, i)))
+                        .collect(Collectors.toList())));
+
+    }
+
+    @Test
+    public void testIteratorErrorBreaks() {
+
+        final RuntimeException x = new RuntimeException();
+        final PromiseStream<Integer> s = PromiseStream.fromIterable(() -> {
+            throw x;
+        });
+
+        assertSame(x, error(s.collect(Collectors.toList())));
+
+    }
+
+    @Test
+    public void testMap() {
+
+        assertEquals(Arrays.asList("1", "2"),
+                value(PromiseStream.of(1, 2).map(String::valueOf)
+                        .collect(Collectors.toList())));
+
+    }
+
+    @Test
+    public void testMapAsyncBrokenElementDelivered() {
+
+        final Exception x = new Exception();
+        final PromiseStream<Integer> s = PromiseStream.of(1, 2, 3)
+                .mapAsyncOrdered(2, i -> i == 2 ? Promises.broken(x)
+                        : Promises.fulfilled(i));
+
+        assertEquals(Optional.of(1), value(s.next()));
+        assertSame(x, error(s.next()));
+        assertEquals(Optional.of(3), value(s.next()));
+        assertEquals(Optional.empty(), value(s.next()));
+
+    }
+
+    @Test
+    public void testMapAsyncLongSynchronousRun() {
+
+        final List<Integer> all = IntStream.range(0, 200000).boxed()
+                .collect(Collectors.toList());
+
+        assertEquals(all, value(PromiseStream.fromIterable(all)
+                .mapAsyncOrdered(4, Promises::fulfilled)
+                .collect(Collectors.toList())));
+
+    }
+
+    @Test
+    public void testMapAsyncOrdered() {
+
+        final List<Async<Integer>> running = new ArrayList<>();
+        final PromiseStream<Integer> s = PromiseStream.of(0, 1, 2, 3)
+                .mapAsyncOrdered(2, i -> {
+                    final Async<Integer> a = Promises.async();
+                    running.add(a);
+                    return a.promise();
+                });
+
+        final Promise<Optional<Integer>> first = s.next();
+        assertEquals(2, running.size());
+
+        running.get(1).succeed(10);
+        assertNull(value(first));
+        assertEquals(3, running.size());
+
+        running.get(0).succeed(0);
+        assertEquals(Optional.of(0), value(first));
+        assertEquals(Optional.of(10), value(s.next()));
+
+        running.get(3).succeed(30);
+        running.get(2).succeed(20);
+        assertEquals(Optional.of(20), value(s.next()));
+        assertEquals(Optional.of(30), value(s.next()));
+        assertEquals(Optional.empty(), value(s.next()));
+
+    }
+
+    @Test
+    public void testMapAsyncUnordered() {
+
+        final List<Async<Integer>> running = new ArrayList<>();
+        final PromiseStream<Integer> s = PromiseStream.of(0, 1, 2)
+                .mapAsyncUnordered(3, i -> {
+                    final Async<Integer> a = Promises.async();
+                    running.add(a);
+                    return a.promise();
+                });
+
+        final Promise<Optional<Integer>> first = s.next();
+        assertEquals(3, running.size());
+
+        running.get(2).succeed(2);
+        running.get(0).succeed(0);
+        assertEquals(Optional.of(2), value(first));
+        assertEquals(Optional.of(0), value(s.next()));
+
+        final Promise<Optional<Integer>> third = s.next();
+        assertNull(value(third));
+        running.get(1).succeed(1);
+        assertEquals(Optional.of(1), value(third));
+        assertEquals(Optional.empty(), value(s.next()));
+
+    }
+
+    @Test
+    public void testMapNullBreaks() {
+
+        assertTrue(error(PromiseStream.of(1).map(i -> null).next()) instanceof NullPointerException);
+
+    }
+
+    @Test
+    public void testTakeStopsPulling() {
+
+        final AtomicInteger n = new AtomicInteger();
+        final PromiseStream<Integer> counted = () -> Promises.fulfilled(Optional
+                .of(n.incrementAndGet()));
+
+        assertEquals(Arrays.asList(1, 2, 3),
+                value(counted.take(3).collect(Collectors.toList())));
+        assertEquals(3, n.get());
+
+    }
+
+    @Test
+    public void testWindow() {
+
+        assertEquals(
+                Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4),
+                        Arrays.asList(5)),
+                value(PromiseStream.of(1, 2, 3, 4, 5).window(2)
+                        .collect(Collectors.toList())));
+
+    }
+
+    @Test
+    public void testWindowErrorAfterElements() {
+
+        final Exception x = new Exception();
+        final PromiseStream<List<Integer>> s = this.src.window(3);
+
+        final Promise<Optional<List<Integer>>> first = s.next();
+        this.pulls.get(0).succeed(Optional.of(1));
+        this.pulls.get(1).fail(x);
+
+        assertEquals(Optional.of(Arrays.asList(1)), value(first));
+        assertSame(x, error(s.next()));
+        assertEquals(Optional.empty(), value(s.next()));
+
+    }
+
+    @Test
+    public void testWindowTimeSkipsEmptyPeriods() throws Exception {
+
+        final PromiseStream<List<Integer>> s = this.src.windowTime(10,
+                TimeUnit.MILLISECONDS);
+
+        final CountDownLatch emitted = new CountDownLatch(1);
+        final AtomicReference<Optional<List<Integer>>> got = new AtomicReference<>();
+        s.next().forEach(v -> {
+            got.set(v);
+            emitted.countDown();
+        });
+
+        Thread.sleep(50);
+        assertNull(got.get());
+
+        this.pulls.get(0).succeed(Optional.of(7));
+
+        assertTrue(emitted.await(5, TimeUnit.SECONDS));
+        assertEquals(Optional.of(Arrays.asList(7)), got.get());
+
+    }
+
+    private Throwable error(final Promise<?> p) {
+        final AtomicReference<Throwable> rval = new AtomicReference<>();
+        p.on(Throwable.class, rval::set);
+        return rval.get();
+    }
+
+    private <T> T value(final Promise<T> p) {
+        final AtomicReference<T> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
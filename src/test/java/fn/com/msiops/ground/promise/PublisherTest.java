@@ -0,0 +1,230 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+public class PublisherTest {
+
+    private Async<Integer> a;
+
+    private Consumer<Object> c;
+
+    private AtomicReference<Subscription> sub;
+
+    private Subscriber<Object> subscriber;
+
+    private Integer value;
+
+    private Exception x;
+
+    @Before
+    public void setup() {
+
+        @SuppressWarnings("unchecked")
+        final Subscriber<Object> ts = mock(Subscriber.class);
+
+        @SuppressWarnings("unchecked")
+        final Consumer<Object> tc = mock(Consumer.class);
+
+        this.sub = new AtomicReference<>();
+        doAnswer(inv -> {
+            this.sub.set((Subscription) inv.getArguments()[0]);
+            return null;
+        }).when(ts).onSubscribe(any(Subscription.class));
+
+        this.a = Promises.async();
+        this.value = 12;
+        this.x = new Exception();
+
+        this.subscriber = ts;
+        this.c = tc;
+
+    }
+
+    @Test
+    public void testBrokenSignaledWithoutDemand() {
+
+        this.a.promise().toPublisher().subscribe(this.subscriber);
+
+        this.a.fail(this.x);
+
+        verify(this.subscriber).onError(this.x);
+        verify(this.subscriber, never()).onNext(any());
+        verify(this.subscriber, never()).onComplete();
+
+    }
+
+    @Test
+    public void testCanceledSubscriptionNotSignaled() {
+
+        this.a.promise().toPublisher().subscribe(this.subscriber);
+        this.sub.get().request(1);
+        this.sub.get().cancel();
+
+        this.a.succeed(this.value);
+
+        verify(this.subscriber, never()).onNext(any());
+        verify(this.subscriber, never()).onComplete();
+
+    }
+
+    @Test
+    public void testFromPublisherCompletedEmptyBreaks() {
+
+        final Publisher<Integer> pub = s -> s.onSubscribe(new Subscription() {
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public void request(final long n) {
+                s.onComplete();
+            }
+        });
+
+        Promises.fromPublisher(pub).on(NoSuchElementException.class, this.c);
+
+        verify(this.c).accept(any(NoSuchElementException.class));
+
+    }
+
+    @Test
+    public void testFromPublisherFirstElement() {
+
+        final Subscription upstream = mock(Subscription.class);
+        final AtomicReference<Subscriber<? super Integer>> cap = new AtomicReference<>();
+        final Publisher<Integer> pub = s -> {
+            cap.set(s);
+            s.onSubscribe(upstream);
+        };
+
+        final Promise<Integer> p = Promises.fromPublisher(pub);
+        p.forEach(this.c);
+
+        verify(upstream).request(1);
+        verify(this.c, never()).accept(any());
+
+        cap.get().onNext(this.value);
+        cap.get().onNext(99);
+
+        verify(upstream).cancel();
+        verify(this.c).accept(this.value);
+
+    }
+
+    @Test
+    public void testFromPublisherError() {
+
+        final Publisher<Integer> pub = s -> {
+            s.onSubscribe(mock(Subscription.class));
+            s.onError(this.x);
+        };
+
+        Promises.fromPublisher(pub).on(Throwable.class, this.c);
+
+        verify(this.c).accept(this.x);
+
+    }
+
+    @Test
+    public void testFulfilledBeforeDemand() {
+
+        this.a.promise().toPublisher().subscribe(this.subscriber);
+
+        this.a.succeed(this.value);
+
+        verify(this.subscriber, never()).onNext(any());
+
+        this.sub.get().request(1);
+
+        verify(this.subscriber).onNext(this.value);
+        verify(this.subscriber).onComplete();
+
+    }
+
+    @Test
+    public void testFulfilledAfterDemand() {
+
+        this.a.promise().toPublisher().subscribe(this.subscriber);
+        this.sub.get().request(1);
+
+        verify(this.subscriber, never()).onNext(any());
+
+        this.a.succeed(this.value);
+
+        verify(this.subscriber).onNext(this.value);
+        verify(this.subscriber).onComplete();
+
+    }
+
+    @Test
+    public void testNonPositiveRequestSignalsError() {
+
+        this.a.promise().toPublisher().subscribe(this.subscriber);
+        this.sub.get().request(0);
+
+        this.a.succeed(this.value);
+
+        verify(this.subscriber).onError(any(IllegalArgumentException.class));
+        verify(this.subscriber, never()).onNext(any());
+
+    }
+
+    @Test
+    public void testRoundTrip() {
+
+        final Promise<Integer> p = Promises.fromPublisher(this.a.promise()
+                .toPublisher());
+        p.forEach(this.c);
+
+        this.a.succeed(this.value);
+
+        verify(this.c).accept(this.value);
+
+    }
+
+    @Test
+    public void testSignaledOnce() {
+
+        this.a.promise().toPublisher().subscribe(this.subscriber);
+        this.sub.get().request(1);
+        this.sub.get().request(1);
+
+        this.a.succeed(this.value);
+        this.sub.get().request(1);
+
+        verify(this.subscriber, times(1)).onNext(this.value);
+        verify(this.subscriber, times(1)).onComplete();
+
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.RateLimiter;
+
+public class RateLimiterTest {
+
+    private RateLimiter rl;
+
+    @Before
+    public void setup() {
+
+        /*
+         * slow enough that nothing refills during a test.
+         */
+        this.rl = new RateLimiter(1, 1, TimeUnit.MINUTES, 5);
+
+    }
+
+    @Test
+    public void testBurstImmediate() {
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(1), value(this.rl.acquire(1)));
+        }
+        assertNull(value(this.rl.acquire(1)));
+        assertEquals(1, this.rl.waiting());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositive() {
+
+        this.rl.acquire(0);
+
+    }
+
+    @Test
+    public void testTryAcquire() {
+
+        assertTrue(this.rl.tryAcquire(5));
+        assertFalse(this.rl.tryAcquire(1));
+        assertEquals(0, this.rl.waiting());
+
+    }
+
+    @Test
+    public void testWaitersFulfilledInOrderAtRate() throws Exception {
+
+        /*
+         * one permit every 10ms.
+         */
+        final RateLimiter fast = new RateLimiter(100, 1, TimeUnit.SECONDS, 5);
+        fast.acquire(5);
+
+        final int n = 20;
+        final List<Integer> order = Collections
+                .synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(n);
+        final long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            final int id = i;
+            fast.acquire(1).forEach(k -> {
+                order.add(id);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System
+                .nanoTime() - start);
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+        assertTrue("too fast: " + elapsed, elapsed >= 180);
+        assertEquals(0, fast.waiting());
+
+    }
+
+    private <T> T value(final Promise<T> p) {
+        final AtomicReference<T> rval = new AtomicReference<>();
+        p.forEach(rval::set);
+        return rval.get();
+    }
+
+}
@@ -0,0 +1,213 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise.nio;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Promises;
+import com.msiops.ground.promise.nio.AsyncFiles;
+import com.msiops.ground.promise.nio.BufferPool;
+
+public class AsyncFilesTest {
+
+    private byte[] content;
+
+    private Path file;
+
+    private BufferPool pool;
+
+    @Before
+    public void setup() throws IOException {
+
+        this.content = new byte[10000];
+        new Random(7).nextBytes(this.content);
+
+        this.file = Files.createTempFile("promise", ".bin");
+        Files.write(this.file, this.content);
+
+        this.pool = new BufferPool(1024, 4);
+
+    }
+
+    @After
+    public void teardown() throws IOException {
+
+        Files.deleteIfExists(this.file);
+
+    }
+
+    @Test
+    public void testChunksThrottledBySink() throws Exception {
+
+        final List<Integer> sizes = new ArrayList<>();
+        final ByteBuffer copy = ByteBuffer.allocate(this.content.length);
+
+        try (final AsynchronousFileChannel ch = AsynchronousFileChannel.open(
+                this.file, StandardOpenOption.READ)) {
+            final long n = AsyncFiles.readChunks(ch, 100, 5000, this.pool,
+                    b -> {
+                        sizes.add(b.remaining());
+                        copy.put(b);
+                        return Promises.fulfilled(true);
+                    }).toBlocking().get(5, TimeUnit.SECONDS);
+            assertEquals(5000, n);
+        }
+
+        assertEquals(5, sizes.size());
+        assertEquals(Integer.valueOf(1024), sizes.get(0));
+        assertEquals(Integer.valueOf(5000 - 4 * 1024), sizes.get(4));
+        copy.flip();
+        for (int i = 0; i < 5000; i = i + 1) {
+            assertEquals(this.content[100 + i], copy.get(i));
+        }
+
+    }
+
+    @Test
+    public void testChunksStopAtEndOfFile() throws Exception {
+
+        try (final AsynchronousFileChannel ch = AsynchronousFileChannel.open(
+                this.file, StandardOpenOption.READ)) {
+            final long n = AsyncFiles.readChunks(ch, 9000, 5000, this.pool,
+                    b -> Promises.fulfilled(true)).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(1000, n);
+        }
+
+    }
+
+    @Test
+    public void testChunksToEndOfFileFromOffset() throws Exception {
+
+        try (final AsynchronousFileChannel ch = AsynchronousFileChannel.open(
+                this.file, StandardOpenOption.READ)) {
+            final long n = AsyncFiles.readChunks(ch, 9000, Long.MAX_VALUE,
+                    this.pool, b -> Promises.fulfilled(true)).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(1000, n);
+        }
+
+    }
+
+    @Test
+    public void testChunkSinkBreakStopsReading() throws Exception {
+
+        final Exception x = new RuntimeException();
+
+        try (final AsynchronousFileChannel ch = AsynchronousFileChannel.open(
+                this.file, StandardOpenOption.READ)) {
+            AsyncFiles
+                    .readChunks(ch, 0, this.content.length, this.pool,
+                            b -> Promises.broken(x)).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (final ExecutionException e) {
+            assertSame(x, e.getCause());
+        }
+
+    }
+
+    @Test
+    public void testInitiationErrorBreaks() throws Exception {
+
+        try (final AsynchronousFileChannel ch = AsynchronousFileChannel.open(
+                this.file, StandardOpenOption.READ)) {
+            AsyncFiles.write(ch, ByteBuffer.allocate(1), 0).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof NonWritableChannelException);
+        }
+
+    }
+
+    @Test
+    public void testRead() throws Exception {
+
+        final ByteBuffer dst = ByteBuffer.allocate(10);
+        try (final AsynchronousFileChannel ch = AsynchronousFileChannel.open(
+                this.file, StandardOpenOption.READ)) {
+            final int n = AsyncFiles.read(ch, dst, 20).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(10, n);
+        }
+        assertEquals(this.content[20], dst.get(0));
+        assertEquals(this.content[29], dst.get(9));
+
+    }
+
+    @Test
+    public void testReadAll() throws Exception {
+
+        final List<ByteBuffer> chunks;
+        try (final AsynchronousFileChannel ch = AsynchronousFileChannel.open(
+                this.file, StandardOpenOption.READ)) {
+            chunks = AsyncFiles.readAll(ch, this.pool).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(10, chunks.size());
+        int i = 0;
+        for (final ByteBuffer b : chunks) {
+            assertTrue(b.isDirect());
+            while (b.hasRemaining()) {
+                assertEquals(this.content[i], b.get());
+                i = i + 1;
+            }
+            this.pool.release(b);
+        }
+        assertEquals(this.content.length, i);
+
+    }
+
+    @Test
+    public void testWriteFully() throws Exception {
+
+        final byte[] data = "Hello, Promise".getBytes(StandardCharsets.UTF_8);
+        try (final AsynchronousFileChannel ch = AsynchronousFileChannel.open(
+                this.file, StandardOpenOption.WRITE)) {
+            final long n = AsyncFiles
+                    .writeFully(ch, ByteBuffer.wrap(data), 5).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(data.length, n);
+        }
+
+        final byte[] actual = Files.readAllBytes(this.file);
+        for (int i = 0; i < data.length; i = i + 1) {
+            assertEquals(data[i], actual[5 + i]);
+        }
+
+    }
+
+}
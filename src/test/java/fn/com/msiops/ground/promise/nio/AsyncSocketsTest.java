@@ -0,0 +1,162 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise.nio;
+
+import static org.junit.Assert.*;
+
+import java.io.EOFException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.nio.AsyncSockets;
+import com.msiops.ground.promise.nio.BufferPool;
+
+public class AsyncSocketsTest {
+
+    private InetSocketAddress address;
+
+    private BufferPool pool;
+
+    private AsynchronousServerSocketChannel server;
+
+    private Promise<Long> served;
+
+    @Before
+    public void setup() throws Exception {
+
+        this.pool = new BufferPool(256, 8);
+
+        this.server = AsynchronousServerSocketChannel.open().bind(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        this.address = (InetSocketAddress) this.server.getLocalAddress();
+
+        /*
+         * length-prefixed echo
+         */
+        this.served = AsyncSockets.serve(
+                this.server,
+                conn -> AsyncSockets
+                        .readFully(conn, 4, this.pool)
+                        .then(hdr -> AsyncSockets.readFully(conn,
+                                hdr.getInt(0), this.pool).then(
+                                body -> AsyncSockets.writeFully(conn, hdr,
+                                        body))));
+
+    }
+
+    @After
+    public void teardown() throws Exception {
+
+        this.server.close();
+
+    }
+
+    @Test
+    public void testConnectRefusedBreaks() throws Exception {
+
+        this.server.close();
+
+        try (final AsynchronousSocketChannel ch = AsynchronousSocketChannel
+                .open()) {
+            AsyncSockets.connect(ch, this.address).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (final ExecutionException e) {
+            assertNotNull(e.getCause());
+        }
+
+    }
+
+    @Test
+    public void testEcho() throws Exception {
+
+        final byte[] msg = "Hello, Promise".getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer hdr = ByteBuffer.allocate(4).putInt(0, msg.length);
+
+        try (final AsynchronousSocketChannel ch = AsynchronousSocketChannel
+                .open()) {
+            final ByteBuffer echoed = AsyncSockets
+                    .connect(ch, this.address)
+                    .then(c -> AsyncSockets.writeFully(c, hdr,
+                            ByteBuffer.wrap(msg)))
+                    .then(n -> AsyncSockets.readFully(ch,
+                            ByteBuffer.allocate(4 + msg.length))).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+
+            assertEquals(msg.length, echoed.getInt(0));
+            for (int i = 0; i < msg.length; i = i + 1) {
+                assertEquals(msg[i], echoed.get(4 + i));
+            }
+        }
+
+    }
+
+    @Test
+    public void testReadFullyEndOfStreamBreaks() throws Exception {
+
+        try (final AsynchronousSocketChannel ch = AsynchronousSocketChannel
+                .open()) {
+            AsyncSockets
+                    .connect(ch, this.address)
+                    .then(c -> AsyncSockets.writeFully(c,
+                            ByteBuffer.allocate(4).putInt(0, 1)))
+                    .then(n -> {
+                        ch.shutdownOutput();
+                        return AsyncSockets.readFully(ch,
+                                ByteBuffer.allocate(8));
+                    }).toBlocking().get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof EOFException);
+        }
+
+    }
+
+    @Test
+    public void testServeEndsWhenClosed() throws Exception {
+
+        try (final AsynchronousSocketChannel ch = AsynchronousSocketChannel
+                .open()) {
+            /*
+             * complete an exchange so the accept is known to have happened
+             */
+            AsyncSockets
+                    .connect(ch, this.address)
+                    .then(c -> AsyncSockets.writeFully(c,
+                            ByteBuffer.allocate(4)))
+                    .then(n -> AsyncSockets.readFully(ch,
+                            ByteBuffer.allocate(4))).toBlocking()
+                    .get(5, TimeUnit.SECONDS);
+        }
+        this.server.close();
+
+        assertEquals(Long.valueOf(1),
+                this.served.toBlocking().get(5, TimeUnit.SECONDS));
+
+    }
+
+}
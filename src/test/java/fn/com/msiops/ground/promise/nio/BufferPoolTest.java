@@ -0,0 +1,76 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fn.com.msiops.ground.promise.nio;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.msiops.ground.promise.nio.BufferPool;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testAcquiredIsClearedDirect() {
+
+        final BufferPool pool = new BufferPool(16, 1);
+        final ByteBuffer b = pool.acquire();
+        b.put((byte) 1).flip();
+        pool.release(b);
+
+        final ByteBuffer again = pool.acquire();
+        assertSame(b, again);
+        assertTrue(again.isDirect());
+        assertEquals(0, again.position());
+        assertEquals(16, again.limit());
+
+    }
+
+    @Test
+    public void testCapacityBoundsRetained() {
+
+        final BufferPool pool = new BufferPool(16, 1);
+        final ByteBuffer b1 = pool.acquire();
+        final ByteBuffer b2 = pool.acquire();
+        pool.release(b1);
+        pool.release(b2);
+
+        assertSame(b1, pool.acquire());
+        assertNotSame(b2, pool.acquire());
+
+    }
+
+    @Test
+    public void testForeignBufferDiscarded() {
+
+        final BufferPool pool = new BufferPool(16, 1);
+        final ByteBuffer foreign = ByteBuffer.allocate(16);
+        pool.release(foreign);
+
+        assertNotSame(foreign, pool.acquire());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveSizeIllegal() {
+
+        new BufferPool(0, 1);
+
+    }
+
+}
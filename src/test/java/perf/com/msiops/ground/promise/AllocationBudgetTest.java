@@ -0,0 +1,177 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License") under
+ * one or more contributor license agreements. See the NOTICE file
+ * distributed with this work for information regarding copyright
+ * ownership. You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package perf.com.msiops.ground.promise;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.msiops.ground.promise.Async;
+import com.msiops.ground.promise.Promise;
+import com.msiops.ground.promise.Promises;
+
+/**
+ * <p>
+ * Fail the build when a core operation allocates more per invocation than
+ * its checked-in budget. Budgets are in {@code allocation-budget.properties}
+ * next to this class's resources. A change that legitimately needs more
+ * must raise the budget in the same commit, which makes the cost visible in
+ * review.
+ * </p>
+ *
+ * <p>
+ * Allocation is read from the current thread's allocation counter, which
+ * is exact and unaffected by GC timing. Each operation is warmed up first so
+ * the measurement reflects compiled code. The build runs this test in its own
+ * JVM with escape analysis disabled; otherwise the figures would depend on
+ * inlining decisions influenced by whatever ran earlier in the same JVM.
+ * </p>
+ */
+public class AllocationBudgetTest {
+
+    private static final int MEASURE = 200000;
+
+    private static final int ROUNDS = 3;
+
+    /**
+     * keeps results reachable so the work can't be optimized away.
+     */
+    private static volatile Object sink;
+
+    private static final int WARMUP = 200000;
+
+    private Properties budget;
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setup() throws IOException {
+
+        final java.lang.management.ThreadMXBean tmx = ManagementFactory
+                .getThreadMXBean();
+        assumeTrue(tmx instanceof com.sun.management.ThreadMXBean);
+        this.threads = (com.sun.management.ThreadMXBean) tmx;
+        assumeTrue(this.threads.isThreadAllocatedMemorySupported());
+        this.threads.setThreadAllocatedMemoryEnabled(true);
+
+        this.budget = new Properties();
+        try (final InputStream in = getClass().getResourceAsStream(
+                "/allocation-budget.properties")) {
+            this.budget.load(in);
+        }
+
+    }
+
+    @Test
+    public void testAsyncSucceed() {
+
+        final Integer v = 75;
+        check("async.succeed", () -> {
+            final Async<Integer> a = Promises.async();
+            a.succeed(v);
+            return a;
+        });
+
+    }
+
+    @Test
+    public void testFulfilled() {
+
+        final Integer v = 75;
+        check("fulfilled", () -> Promises.fulfilled(v));
+
+    }
+
+    @Test
+    public void testMap() {
+
+        final Promise<Integer> p = Promises.fulfilled(75);
+        check("map", () -> p.map(i -> i));
+
+    }
+
+    @Test
+    public void testThen() {
+
+        final Promise<Integer> p = Promises.fulfilled(75);
+        check("then", () -> p.then(i -> p));
+
+    }
+
+    @Test
+    public void testToBlocking() {
+
+        final Promise<Integer> p = Promises.fulfilled(75);
+        check("toBlocking", () -> {
+            final Future<Integer> f = p.toBlocking();
+            return f;
+        });
+
+    }
+
+    @Test
+    public void testUnite() {
+
+        final List<Promise<Integer>> ps = new ArrayList<>();
+        for (int i = 0; i < 10; i = i + 1) {
+            ps.add(Promises.fulfilled(i));
+        }
+        check("unite.10", () -> Promises.unite(ps));
+
+    }
+
+    private void check(final String op, final Supplier<?> work) {
+
+        final String declared = this.budget.getProperty(op);
+        assertNotNull("no budget declared for " + op, declared);
+        final long allowed = Long.parseLong(declared.trim());
+
+        for (int i = 0; i < WARMUP; i = i + 1) {
+            sink = work.get();
+        }
+
+        /*
+         * a late recompilation can disturb a single round so take the best
+         * of several.
+         */
+        final long tid = Thread.currentThread().getId();
+        long perOp = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r = r + 1) {
+            final long before = this.threads.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < MEASURE; i = i + 1) {
+                sink = work.get();
+            }
+            final long after = this.threads.getThreadAllocatedBytes(tid);
+            perOp = Math.min(perOp, (after - before) / MEASURE);
+        }
+
+        assertTrue(op + " allocates " + perOp + " bytes/op, budget is "
+                + allowed, perOp <= allowed);
+
+    }
+
+}